@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.dmfs.android.colorpicker.palettes.ArrayPalette;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Test the keys of the {@link PreviewDiskCache}, including the version, and that trimming keeps the most recently used previews.
+ *
+ * @author Marten Gajda
+ */
+@RunWith(AndroidJUnit4.class)
+public class PreviewDiskCacheTest
+{
+    private final static int SIZE = 32;
+
+    private final static float DENSITY = 2f;
+
+    private final static int MAX_PREVIEWS = 4;
+
+    private PreviewDiskCache mCache;
+    private File mDirectory;
+
+
+    @Before
+    public void setUp()
+    {
+        mCache = new PreviewDiskCache(InstrumentationRegistry.getTargetContext(), MAX_PREVIEWS);
+        mDirectory = mCache.file(palette("id", "name", 0xff000000), SIZE, DENSITY).getParentFile();
+        File[] files = mDirectory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+    }
+
+
+    @Test
+    public void testSameColorsSameFile()
+    {
+        File file = mCache.file(palette("id", "name", 0xffff0000, 0xff00ff00, 0xff0000ff), SIZE, DENSITY);
+        // ids and names don't change the appearance
+        assertEquals(file, mCache.file(palette("id", "name", 0xffff0000, 0xff00ff00, 0xff0000ff), SIZE, DENSITY));
+        assertEquals(file, mCache.file(palette("other id", "other name", 0xffff0000, 0xff00ff00, 0xff0000ff), SIZE, DENSITY));
+    }
+
+
+    @Test
+    public void testChangedColorsMiss()
+    {
+        File file = mCache.file(palette("id", "name", 0xffff0000, 0xff00ff00, 0xff0000ff), SIZE, DENSITY);
+        assertNotEquals(file, mCache.file(palette("id", "name", 0xffff0000, 0xff00ff00, 0xff0000fe), SIZE, DENSITY));
+        assertNotEquals(file, mCache.file(palette("id", "name", 0xffff0000, 0xff0000ff, 0xff00ff00), SIZE, DENSITY));
+        assertNotEquals(file, mCache.file(palette("id", "name", 0xffff0000, 0xff00ff00), SIZE, DENSITY));
+        // other sizes and densities have their own previews
+        assertNotEquals(file, mCache.file(palette("id", "name", 0xffff0000, 0xff00ff00, 0xff0000ff), SIZE * 2, DENSITY));
+        assertNotEquals(file, mCache.file(palette("id", "name", 0xffff0000, 0xff00ff00, 0xff0000ff), SIZE, DENSITY * 2));
+    }
+
+
+    @Test
+    public void testVersionInFileName() throws IOException
+    {
+        File file = mCache.file(palette("id", "name", 0xffff0000, 0xff00ff00, 0xff0000ff), SIZE, DENSITY);
+        assertTrue(file.getName().startsWith("v" + PreviewDiskCache.VERSION + "-"));
+
+        // previews of older versions are never used, so they are the first ones to go
+        assertTrue(mDirectory.isDirectory() || mDirectory.mkdirs());
+        File old = new File(mDirectory, file.getName().replaceFirst("^v\\d+-", "v" + (PreviewDiskCache.VERSION - 1) + "-"));
+        assertNotEquals(file, old);
+        new FileOutputStream(old).close();
+        for (int i = 0; i < MAX_PREVIEWS; ++i)
+        {
+            new FileOutputStream(mCache.file(palette("id", "name", 0xff000000 | i), SIZE, DENSITY)).close();
+        }
+        assertTrue(old.setLastModified(System.currentTimeMillis() - 100000L));
+
+        mCache.trim();
+
+        assertFalse(old.exists());
+        assertEquals(MAX_PREVIEWS, mDirectory.listFiles().length);
+    }
+
+
+    @Test
+    public void testTrimByCount() throws IOException
+    {
+        assertTrue(mDirectory.isDirectory() || mDirectory.mkdirs());
+        int count = MAX_PREVIEWS * 3;
+        long now = System.currentTimeMillis();
+        File[] files = new File[count];
+        for (int i = 0; i < count; ++i)
+        {
+            files[i] = mCache.file(palette("id", "name", 0xff000000 | i), SIZE, DENSITY);
+            new FileOutputStream(files[i]).close();
+            // the later the file, the more recently it has been used
+            assertTrue(files[i].setLastModified(now - (count - i) * 10000L));
+        }
+
+        mCache.trim();
+
+        File[] remaining = mDirectory.listFiles();
+        Arrays.sort(remaining);
+        File[] expected = Arrays.copyOfRange(files, count - MAX_PREVIEWS, count);
+        Arrays.sort(expected);
+        assertArrayEquals(expected, remaining);
+    }
+
+
+    @Test
+    public void testTrimWithinLimit() throws IOException
+    {
+        assertTrue(mDirectory.isDirectory() || mDirectory.mkdirs());
+        for (int i = 0; i < MAX_PREVIEWS; ++i)
+        {
+            new FileOutputStream(mCache.file(palette("id", "name", 0xff000000 | i), SIZE, DENSITY)).close();
+        }
+
+        mCache.trim();
+
+        assertEquals(MAX_PREVIEWS, mDirectory.listFiles().length);
+    }
+
+
+    private static ArrayPalette palette(String id, String name, int... colors)
+    {
+        return new ArrayPalette(id, name, colors);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.content.Context;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.annotation.UiThreadTest;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.GridView;
+
+import org.dmfs.android.colorpicker.palettes.ArrayPalette;
+import org.dmfs.android.colorpicker.palettes.Palette;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Test that binding swatches doesn't allocate, so scrolling and paging through palettes doesn't cause garbage collections.
+ * <p>
+ * The tests run on the main thread, like binding does in the app. Allocations are counted with {@link Debug#startAllocCounting()}. The views may allocate a
+ * few objects on their own, but nothing that scales with the number of binds.
+ *
+ * @author Marten Gajda
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwatchBindAllocationTest
+{
+    /**
+     * The number of colors of the test palette.
+     */
+    private final static int COUNT = 64;
+
+    /**
+     * The number of times each swatch is bound while allocations are counted.
+     */
+    private final static int ROUNDS = 20;
+
+
+    @Test
+    @UiThreadTest
+    public void testRecyclerAdapter()
+    {
+        Context context = InstrumentationRegistry.getTargetContext();
+        PaletteRecyclerAdapter adapter = new PaletteRecyclerAdapter(palette(), new PaletteRecyclerAdapter.OnSwatchClickListener()
+        {
+            @Override
+            public void onSwatchClick(int position)
+            {
+            }
+        });
+        adapter.setSelectedPosition(COUNT / 2);
+        PaletteRecyclerAdapter.SwatchHolder holder = adapter.onCreateViewHolder(new RecyclerView(context), PaletteRecyclerAdapter.VIEW_TYPE_SWATCH);
+
+        // the first bind of each position may allocate its content description
+        for (int position = 0; position < COUNT; ++position)
+        {
+            adapter.onBindViewHolder(holder, position);
+        }
+
+        startCounting();
+        for (int round = 0; round < ROUNDS; ++round)
+        {
+            for (int position = 0; position < COUNT; ++position)
+            {
+                adapter.onBindViewHolder(holder, position);
+            }
+        }
+        assertFewAllocations(stopCounting());
+    }
+
+
+    @Test
+    @UiThreadTest
+    public void testRecyclerAdapterSetPalette()
+    {
+        Context context = InstrumentationRegistry.getTargetContext();
+        PaletteRecyclerAdapter adapter = new PaletteRecyclerAdapter(palette(), new PaletteRecyclerAdapter.OnSwatchClickListener()
+        {
+            @Override
+            public void onSwatchClick(int position)
+            {
+            }
+        });
+        adapter.setSelectedPosition(COUNT / 2);
+        PaletteRecyclerAdapter.SwatchHolder holder = adapter.onCreateViewHolder(new RecyclerView(context), PaletteRecyclerAdapter.VIEW_TYPE_SWATCH);
+        for (int position = 0; position < COUNT; ++position)
+        {
+            adapter.onBindViewHolder(holder, position);
+        }
+
+        // the adapter shows the new palette, without the descriptions and the selection of the old one
+        adapter.setPalette(new ArrayPalette("other", "other", new int[] { 0xffff0000, 0xff00ff00 }, new String[] { null, "Other" }));
+        assertEquals(2, adapter.getItemCount());
+        adapter.onBindViewHolder(holder, 0);
+        assertEquals("#FF0000", holder.itemView.getContentDescription());
+        assertFalse(holder.itemView.isSelected());
+        adapter.onBindViewHolder(holder, 1);
+        assertEquals("Other", holder.itemView.getContentDescription());
+    }
+
+
+    @Test
+    @UiThreadTest
+    public void testGridAdapter()
+    {
+        Context context = InstrumentationRegistry.getTargetContext();
+        PaletteGridAdapter adapter = new PaletteGridAdapter(context, palette());
+        adapter.setSelectedPosition(COUNT / 2);
+        GridView parent = new GridView(context);
+        View view = adapter.getView(0, null, parent);
+
+        startCounting();
+        for (int round = 0; round < ROUNDS; ++round)
+        {
+            for (int position = 0; position < COUNT; ++position)
+            {
+                // recycled views must be reused
+                assertSame(view, adapter.getView(position, view, parent));
+            }
+        }
+        assertFewAllocations(stopCounting());
+    }
+
+
+    /**
+     * Returns a palette with both named and unnamed colors.
+     */
+    private static Palette palette()
+    {
+        int[] colors = new int[COUNT];
+        String[] names = new String[COUNT];
+        for (int i = 0; i < COUNT; ++i)
+        {
+            colors[i] = 0xff000000 | i * 0x040404;
+            names[i] = i % 2 == 0 ? "Color " + i : null;
+        }
+        return new ArrayPalette("id", "name", colors, names);
+    }
+
+
+    @SuppressWarnings("deprecation")
+    private static void startCounting()
+    {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+    }
+
+
+    @SuppressWarnings("deprecation")
+    private static int stopCounting()
+    {
+        Debug.stopAllocCounting();
+        return Debug.getThreadAllocCount();
+    }
+
+
+    private static void assertFewAllocations(int allocations)
+    {
+        int binds = ROUNDS * COUNT;
+        assertTrue(allocations + " allocations in " + binds + " binds", allocations < ROUNDS);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import android.os.Parcel;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Test that generated and packed palettes parcel their recipe instead of their colors and come back equal.
+ *
+ * @author Marten Gajda
+ */
+@RunWith(AndroidJUnit4.class)
+public class PaletteParcelTest
+{
+    /**
+     * The number of colors of each palette, parcelling the colors of one of them would take about 40 KiB.
+     */
+    private final static int COUNT = 10000;
+
+    /**
+     * The maximum size of a parcelled palette in bytes.
+     */
+    private final static int BUDGET = 512;
+
+
+    @Test
+    public void testFactoryPalette()
+    {
+        assertRoundTrip(new FactoryPalette("id", "name", ColorFactory.RAINBOW, COUNT, 100), BUDGET);
+        assertRoundTrip(new FactoryPalette("id", "name", new ColorLightnessFactory(200f, 0.5f), COUNT, 100), BUDGET);
+        assertRoundTrip(new FactoryPalette("id", "name", new CombinedColorFactory(ColorFactory.RED, ColorFactory.ORANGE), COUNT, 100), BUDGET);
+    }
+
+
+    @Test
+    public void testLazyFactoryPalette()
+    {
+        assertRoundTrip(new LazyFactoryPalette("id", "name", ColorFactory.PASTEL, COUNT, 100), BUDGET);
+        assertRoundTrip(new LazyFactoryPalette("id", "name", new OklchColorFactory(200f, 0.1f), COUNT, 100), BUDGET);
+        assertRoundTrip(new LazyFactoryPalette("id", "name", new CombinedColorFactory(ColorFactory.CYAN, ColorFactory.BLUE), COUNT, 100), BUDGET);
+    }
+
+
+    @Test
+    public void testRandomPalette()
+    {
+        assertRoundTrip(new RandomPalette("id", "name", COUNT, 42), BUDGET);
+    }
+
+
+    @Test
+    public void testPackedPalette() throws IOException
+    {
+        File file = File.createTempFile("palettes", ".pack");
+        try
+        {
+            PalettePackWriter.write(file, new FactoryPalette("rainbow", "Rainbow", ColorFactory.RAINBOW, COUNT, 100),
+                    new ArrayPalette("named", "Named", new int[] { 0xffff0000, 0xff00ff00 }, 2, new String[] { "Red", "Green" }));
+            PalettePack pack = PalettePack.open(file);
+            // packed palettes only parcel the path of the pack and their index
+            assertRoundTrip(pack.palette(0), BUDGET);
+            assertRoundTrip(pack.palette(1), BUDGET);
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+
+    @Test
+    public void testCustomFactory()
+    {
+        // factories that can't be parcelled fall back to the colors
+        ColorFactory custom = new ColorFactory()
+        {
+            @Override
+            public int colorAt(int index, int count)
+            {
+                return 0xff000000 | index * 0x010203;
+            }
+        };
+        assertRoundTrip(new FactoryPalette("id", "name", custom, COUNT, 100), COUNT * 4 + BUDGET);
+        assertRoundTrip(new LazyFactoryPalette("id", "name", custom, COUNT, 100), COUNT * 4 + BUDGET);
+    }
+
+
+    private static void assertRoundTrip(Palette palette, int budget)
+    {
+        Parcel parcel = Parcel.obtain();
+        try
+        {
+            parcel.writeParcelable(palette, 0);
+            assertTrue(palette.getClass().getSimpleName() + " takes " + parcel.dataSize() + " bytes", parcel.dataSize() <= budget);
+
+            parcel.setDataPosition(0);
+            Palette result = parcel.readParcelable(PaletteParcelTest.class.getClassLoader());
+
+            assertEquals(palette.getClass(), result.getClass());
+            assertEquals(palette.id(), result.id());
+            assertEquals(palette.name(), result.name());
+            assertEquals(palette.numberOfColumns(), result.numberOfColumns());
+            assertArrayEquals(colors(palette), colors(result));
+            assertEquals(palette, result);
+        }
+        finally
+        {
+            parcel.recycle();
+        }
+    }
+
+
+    private static int[] colors(Palette palette)
+    {
+        int[] result = new int[palette.numberOfColors()];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = palette.colorAt(i);
+        }
+        return result;
+    }
+}
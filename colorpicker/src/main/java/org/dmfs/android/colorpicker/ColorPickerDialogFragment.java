@@ -19,28 +19,53 @@ package org.dmfs.android.colorpicker;
 
 import android.app.Activity;
 import android.app.Dialog;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.v4.app.Fragment;
 import android.support.v4.content.ContextCompat;
 import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.Window;
+import android.widget.AdapterView;
+import android.widget.EditText;
+import android.widget.GridView;
 import android.widget.TextView;
 
 import org.dmfs.android.bolts.color.colors.AttributeColor;
-import org.dmfs.android.colorpicker.PaletteFragment.OnColorSelectedListener;
+import org.dmfs.android.colorpicker.PalettesPagerAdapter.OnColorSelectedListener;
+import org.dmfs.android.colorpicker.palettes.ArrayPalette;
+import org.dmfs.android.colorpicker.palettes.ColorMatch;
+import org.dmfs.android.colorpicker.palettes.ColorNameIndex;
 import org.dmfs.android.colorpicker.palettes.Palette;
+import org.dmfs.android.colorpicker.palettes.PaletteRegistry;
+import org.dmfs.android.colorpicker.palettes.ResourcePalette;
 import org.dmfs.android.retentionmagic.SupportDialogFragment;
 import org.dmfs.android.retentionmagic.annotations.Retain;
 import org.dmfs.android.view.DrawablePagerTabStrip;
 import org.dmfs.android.view.ViewPager;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 
 /**
  * A fragment that shows a color picker with multiple palettes to choose from.
@@ -49,6 +74,32 @@ import org.dmfs.android.view.ViewPager;
  */
 public final class ColorPickerDialogFragment extends SupportDialogFragment implements OnColorSelectedListener
 {
+    private final static String TAG = "ColorPickerDialog";
+
+    /**
+     * The time to wait after the last change of the search query before we start searching.
+     */
+    private final static long SEARCH_DELAY = 250; // ms
+
+    /**
+     * Runs searches one after another. The thread ends when there is nothing to search for a while.
+     */
+    private final static Executor SEARCH_EXECUTOR = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+    /**
+     * Collects the colors of palettes for {@link #selectColor(int)}. The thread ends when there is nothing to index for a while.
+     */
+    private final static Executor INDEX_EXECUTOR = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mSearchRunnable = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            search(mSearchView.getText().toString());
+        }
+    };
     private ViewPager mPager;
     private TextView mTitleView;
     private PalettesPagerAdapter mPagerAdapter;
@@ -58,10 +109,69 @@ public final class ColorPickerDialogFragment extends SupportDialogFragment imple
     private CharSequence mTitle = null;
     @Retain
     private int mTitleId = 0;
+    @Retain
+    private boolean mSearchEnabled = false;
+    @Retain
+    private boolean mRecyclerPages = false;
+    @Retain
+    private boolean mPreviewAtlas = false;
+    @Retain
+    private boolean mPreviewDiskCache = false;
     /**
-     * The index of the selected palette.
+     * The index of the palette that's currently shown.
      */
+    @Retain
     private int mSelected = 0;
+    /**
+     * The index of the palette that contains the selected color.
+     */
+    @Retain
+    private int mSelectedColorPalette = 0;
+    /**
+     * The index of the selected color in {@link #mSelectedColorPalette} or <code>-1</code> if no color is selected.
+     */
+    @Retain
+    private int mSelectedColor = -1;
+    /**
+     * Maps palette ids to their index in {@link #mPalettes}.
+     */
+    private Map<String, Integer> mPaletteIds;
+    /**
+     * Finds the first position of a color in {@link #mPalettes}. It's created by the first call to {@link #selectColor(int)}, so palettes don't have to load
+     * all their colors unless a color is selected. The colors of each palette are added in the background.
+     */
+    private ColorPositions mColorPositions;
+    /**
+     * The number of palettes whose colors are still being collected for {@link #mColorPositions}.
+     */
+    private int mPendingIndexes;
+    private EditText mSearchView;
+    private GridView mSearchResultsView;
+    /**
+     * The index of color names, it's built with the first search.
+     */
+    private ColorNameIndex mNameIndex;
+    /**
+     * The number of changes to the palettes, used to drop search results and indices of outdated palettes.
+     */
+    private int mPalettesGeneration;
+    /**
+     * The number of the latest search, used to drop results of outdated searches.
+     */
+    private int mSearchGeneration;
+    /**
+     * The number of the latest set of palettes, used to drop palettes that are loaded for an outdated set.
+     */
+    private int mLoadGeneration;
+    /**
+     * The number of palettes that are still being loaded. Loads are not retained, so this is always 0 after the dialog has been restored.
+     */
+    private int mPendingLoads;
+    /**
+     * Whether {@link #mPendingColor} should be selected once it's found in a palette that has been loaded or indexed.
+     */
+    private boolean mHasPendingColor;
+    private int mPendingColor;
 
 
     /**
@@ -73,6 +183,298 @@ public final class ColorPickerDialogFragment extends SupportDialogFragment imple
     public void setPalettes(Palette... palettes)
     {
         mPalettes = palettes;
+        onPalettesChanged();
+        mPaletteIds = paletteIds(palettes);
+        ++mLoadGeneration;
+        mPendingLoads = 0;
+        mHasPendingColor = false;
+        mColorPositions = null;
+        mPendingIndexes = 0;
+        if (mPagerAdapter != null)
+        {
+            mPagerAdapter.setPalettes(palettes);
+        }
+    }
+
+
+    /**
+     * Set the palettes to show, loading them in the background. The dialog shows a placeholder page for each palette until it has been loaded. Palettes
+     * that fail to load are removed.
+     * <p>
+     * Note, pending loads are not retained. If the dialog is recreated before all palettes have been loaded, the palettes that are still missing are dropped.
+     * Call this again after the dialog has been restored to load them again.
+     *
+     * @param executor
+     *         The {@link Executor} to run the providers on.
+     * @param providers
+     *         A {@link Callable} for each palette, returning the {@link Palette}.
+     */
+    public void setPalettes(Executor executor, List<? extends Callable<? extends Palette>> providers)
+    {
+        Palette[] placeholders = new Palette[providers.size()];
+        for (int i = 0; i < placeholders.length; ++i)
+        {
+            placeholders[i] = new PendingPalette();
+        }
+        setPalettes(placeholders);
+
+        final int generation = mLoadGeneration;
+        mPendingLoads = placeholders.length;
+        for (int i = 0; i < placeholders.length; ++i)
+        {
+            final Palette placeholder = placeholders[i];
+            final Callable<? extends Palette> provider = providers.get(i);
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Palette palette = null;
+                    try
+                    {
+                        palette = provider.call();
+                    }
+                    catch (Exception e)
+                    {
+                        Log.e(TAG, "Can't load palette", e);
+                    }
+                    final Palette result = palette;
+                    mHandler.post(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            if (generation == mLoadGeneration)
+                            {
+                                onPaletteLoaded(placeholder, result);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+
+    /**
+     * Replace the given placeholder with the loaded palette or remove it, if the palette couldn't be loaded.
+     */
+    private void onPaletteLoaded(Palette placeholder, Palette palette)
+    {
+        --mPendingLoads;
+        int index = indexOf(mPalettes, placeholder);
+        if (index < 0)
+        {
+            return;
+        }
+
+        onPalettesChanged();
+        if (palette != null)
+        {
+            mPalettes[index] = palette;
+            mPaletteIds = paletteIds(mPalettes);
+            if (mColorPositions != null)
+            {
+                // a color has been selected, index the new palette as well
+                mColorPositions.update(mPalettes);
+                indexColors(mColorPositions, palette);
+            }
+            if (mPagerAdapter != null)
+            {
+                mPagerAdapter.setPalette(index, palette);
+            }
+        }
+        else
+        {
+            removePalettes(placeholder);
+        }
+
+        if (mHasPendingColor)
+        {
+            selectColor(mPendingColor);
+        }
+    }
+
+
+    /**
+     * Remove the given palettes, staying on the current page and keeping the selected color if possible.
+     */
+    private void removePalettes(Palette... remove)
+    {
+        List<Palette> remaining = new ArrayList<>(mPalettes.length);
+        // the new index of the current palette or of the one that takes its place, if it's removed
+        int current = 0;
+        int colorPalette = -1;
+        for (int i = 0; i < mPalettes.length; ++i)
+        {
+            if (indexOf(remove, mPalettes[i]) < 0)
+            {
+                if (i < mSelected)
+                {
+                    ++current;
+                }
+                if (i == mSelectedColorPalette)
+                {
+                    colorPalette = remaining.size();
+                }
+                remaining.add(mPalettes[i]);
+            }
+        }
+        mPalettes = remaining.toArray(new Palette[remaining.size()]);
+        mPaletteIds = paletteIds(mPalettes);
+        if (mColorPositions != null)
+        {
+            mColorPositions.update(mPalettes);
+        }
+        onPalettesChanged();
+        mSelected = Math.min(current, Math.max(mPalettes.length - 1, 0));
+        mSelectedColorPalette = Math.max(colorPalette, 0);
+        mSelectedColor = colorPalette >= 0 ? mSelectedColor : -1;
+        // capture the selection, the pager may report page changes while the adapter is updated
+        int selected = mSelected;
+        if (mPagerAdapter != null)
+        {
+            mPagerAdapter.setSelection(mSelectedColorPalette, mSelectedColor);
+            mPagerAdapter.setPalettes(mPalettes);
+            if (mPager != null && mPalettes.length > 0)
+            {
+                // don't animate, the user is already looking at this palette
+                mPager.setCurrentItem(mPagerAdapter.centerPosition(selected), false);
+            }
+        }
+        mSelected = selected;
+    }
+
+
+    /**
+     * Drop everything that has been derived from the palettes.
+     */
+    private void onPalettesChanged()
+    {
+        mNameIndex = null;
+        ++mPalettesGeneration;
+    }
+
+
+    /**
+     * Start collecting the colors of all palettes in the background. Placeholders are skipped, their palettes are indexed when they have been loaded.
+     */
+    private void indexColors()
+    {
+        ColorPositions positions = new ColorPositions(mPalettes);
+        mColorPositions = positions;
+        mPendingIndexes = 0;
+        for (Palette palette : mPalettes)
+        {
+            if (!(palette instanceof PendingPalette))
+            {
+                indexColors(positions, palette);
+            }
+        }
+    }
+
+
+    /**
+     * Collect the colors of the given palette in the background and add them to the given {@link ColorPositions}, if they are still current.
+     */
+    private void indexColors(final ColorPositions positions, final Palette palette)
+    {
+        ++mPendingIndexes;
+        INDEX_EXECUTOR.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final long[] colors = ColorPositions.colorsOf(palette);
+                mHandler.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (positions != mColorPositions)
+                        {
+                            // the palettes have been replaced in the meantime
+                            return;
+                        }
+                        --mPendingIndexes;
+                        positions.add(palette, colors);
+                        if (mHasPendingColor)
+                        {
+                            selectColor(mPendingColor);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+
+    private static int indexOf(Palette[] palettes, Palette palette)
+    {
+        for (int i = 0; i < palettes.length; ++i)
+        {
+            if (palettes[i] == palette)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Enable or disable searching colors by name. If enabled, the dialog shows a search field and all colors with a matching name are shown while the user
+     * types.
+     *
+     * @param enabled
+     *         <code>true</code> to enable the search.
+     */
+    public void setSearchEnabled(boolean enabled)
+    {
+        mSearchEnabled = enabled;
+        if (mSearchView != null)
+        {
+            mSearchView.setVisibility(enabled ? View.VISIBLE : View.GONE);
+        }
+    }
+
+
+    /**
+     * Show the palettes in {@link RecyclerView}s instead of {@link PaletteView}s. All pages share a single pool of swatch views, so swiping through the
+     * palettes reuses the same views instead of creating new ones for every page. This has to be called before the dialog is shown.
+     *
+     * @param enabled
+     *         <code>true</code> to use {@link RecyclerView}s.
+     */
+    public void setRecyclerPagesEnabled(boolean enabled)
+    {
+        mRecyclerPages = enabled;
+    }
+
+
+    /**
+     * Render the previews of all palettes into a single bitmap instead of one bitmap per palette. This saves bitmap allocations and texture uploads when
+     * there are many palettes. This has to be called before the dialog is shown.
+     *
+     * @param enabled
+     *         <code>true</code> to use a single bitmap for all previews.
+     */
+    public void setPreviewAtlasEnabled(boolean enabled)
+    {
+        mPreviewAtlas = enabled;
+    }
+
+
+    /**
+     * Keep the previews of the palettes in the cache directory of the app, so they don't need to be rendered again the next time the dialog is shown, even
+     * after the app has been restarted. This has to be called before the dialog is shown.
+     *
+     * @param enabled
+     *         <code>true</code> to store previews on disk.
+     */
+    public void setPreviewDiskCacheEnabled(boolean enabled)
+    {
+        mPreviewDiskCache = enabled;
     }
 
 
@@ -89,23 +491,83 @@ public final class ColorPickerDialogFragment extends SupportDialogFragment imple
             return;
         }
 
-        int index = 0;
-        for (Palette palette : mPalettes)
+        if (mPaletteIds == null)
         {
-            if (TextUtils.equals(id, palette.id()))
-            {
-                mSelected = index;
-                if (mPager != null && mPagerAdapter != null)
-                {
-                    mPager.setCurrentItem(mPagerAdapter.getCount() / 2 + mSelected);
-                }
-                return;
-            }
-            ++index;
+            // the palettes have been restored
+            mPaletteIds = paletteIds(mPalettes);
+        }
+
+        Integer index = mPaletteIds.get(id);
+        if (index != null)
+        {
+            select(index, -1);
+        }
+    }
+
+
+    /**
+     * Switch to the palette that contains the given color and highlight the color. If multiple palettes contain the color, the first one is selected. Has
+     * no effect if none of the palettes contains the color.
+     * <p>
+     * The colors of the palettes are indexed in the background when this is called for the first time. If the color is not found yet, it's selected as soon
+     * as a palette that contains it has been indexed, which is not necessarily the first one.
+     *
+     * @param argb
+     *         The color to select.
+     */
+    public void selectColor(int argb)
+    {
+        if (mPalettes == null)
+        {
+            return;
+        }
+
+        if (mColorPositions == null)
+        {
+            // the first selection, palettes only load all their colors if we need them
+            indexColors();
+        }
+
+        long position = mColorPositions.positionOf(argb);
+        if (position >= 0)
+        {
+            mHasPendingColor = false;
+            select((int) (position >>> 32), (int) position);
+        }
+        else
+        {
+            // the color might be in a palette that's still being loaded or indexed
+            mHasPendingColor = mPendingLoads > 0 || mPendingIndexes > 0;
+            mPendingColor = argb;
+        }
+    }
+
+
+    private void select(int palette, int color)
+    {
+        mSelected = palette;
+        mSelectedColorPalette = palette;
+        mSelectedColor = color;
+        if (mPager != null && mPagerAdapter != null)
+        {
+            mPagerAdapter.setSelection(palette, color);
+            mPager.setCurrentItem(mPagerAdapter.centerPosition(mSelected));
         }
     }
 
 
+    private static Map<String, Integer> paletteIds(Palette[] palettes)
+    {
+        Map<String, Integer> result = new HashMap<>(palettes.length * 2);
+        for (int i = palettes.length - 1; i >= 0; --i)
+        {
+            // iterate backwards, so the first palette with a specific id wins
+            result.put(palettes[i].id(), i);
+        }
+        return result;
+    }
+
+
     /**
      * Set the dialog title.
      *
@@ -138,15 +600,85 @@ public final class ColorPickerDialogFragment extends SupportDialogFragment imple
     }
 
 
+    @Override
+    public void onAttach(Context context)
+    {
+        // palettes restored from the saved state may need the resources
+        ResourcePalette.attach(context);
+        // release cached palettes under memory pressure
+        PaletteRegistry.DEFAULT.register(context);
+        super.onAttach(context);
+    }
+
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState)
+    {
+        long start = ColorPickerTrace.begin(ColorPickerTrace.DIALOG_CREATE_VIEW);
+        try
+        {
+            return createView(inflater, container);
+        }
+        finally
+        {
+            ColorPickerTrace.end(ColorPickerTrace.DIALOG_CREATE_VIEW, start);
+        }
+    }
+
+
+    private View createView(LayoutInflater inflater, ViewGroup container)
     {
         View view = inflater.inflate(R.layout.dmfs_colorpickerdialog_fragment, container);
+        if (mPendingLoads == 0 && mPalettes != null)
+        {
+            // drop placeholders of loads that didn't survive a restore
+            List<Palette> pending = new ArrayList<>();
+            for (Palette palette : mPalettes)
+            {
+                if (palette instanceof PendingPalette)
+                {
+                    pending.add(palette);
+                }
+            }
+            if (!pending.isEmpty())
+            {
+                removePalettes(pending.toArray(new Palette[pending.size()]));
+            }
+        }
         mPager = view.findViewById(R.id.pager);
-        mPagerAdapter = new PalettesPagerAdapter(getResources(), getChildFragmentManager(), mPalettes);
-        mPagerAdapter.notifyDataSetChanged();
+        mPagerAdapter = new PalettesPagerAdapter(getResources(), this, mPalettes);
+        mPagerAdapter.setSelection(mSelectedColorPalette, mSelectedColor);
+        mPagerAdapter.setRecyclerPages(mRecyclerPages);
+        if (mPreviewDiskCache)
+        {
+            mPagerAdapter.setPreviewDiskCache(new PreviewDiskCache(inflater.getContext(), PreviewDiskCache.DEFAULT_MAX_PREVIEWS));
+        }
+        mPagerAdapter.setPreviewAtlas(mPreviewAtlas);
         mPager.setAdapter(mPagerAdapter);
-        mPager.setCurrentItem(mPagerAdapter.getCount() / 2 + mSelected);
+        mPager.setCurrentItem(mPagerAdapter.centerPosition(mSelected));
+        mPager.setOnPageChangeListener(new ViewPager.SimpleOnPageChangeListener()
+        {
+            @Override
+            public void onPageSelected(int position)
+            {
+                if (mPagerAdapter != null && mPalettes.length > 0)
+                {
+                    // remember the palette the user swiped to
+                    mSelected = mPagerAdapter.mapPosition(position);
+                }
+            }
+
+
+            @Override
+            public void onPageScrollStateChanged(int state)
+            {
+                if (state == ViewPager.SCROLL_STATE_IDLE && mPagerAdapter != null)
+                {
+                    // jump back to the middle copy of the palettes, so the user can keep swiping in both directions
+                    mPagerAdapter.recenter(mPager);
+                }
+            }
+        });
 
         mTitleView = view.findViewById(android.R.id.title);
 
@@ -161,10 +693,144 @@ public final class ColorPickerDialogFragment extends SupportDialogFragment imple
 
         DrawablePagerTabStrip titleStrip = view.findViewById(R.id.pager_title_strip);
         titleStrip.setTabIndicatorColor(new AttributeColor(getContext(), R.attr.colorAccent).argb());
+
+        mSearchResultsView = view.findViewById(R.id.search_results);
+        mSearchView = view.findViewById(R.id.search);
+        mSearchView.setVisibility(mSearchEnabled ? View.VISIBLE : View.GONE);
+        mSearchView.addTextChangedListener(new TextWatcher()
+        {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after)
+            {
+                // nothing to do
+            }
+
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count)
+            {
+                // nothing to do
+            }
+
+
+            @Override
+            public void afterTextChanged(Editable s)
+            {
+                mHandler.removeCallbacks(mSearchRunnable);
+                if (TextUtils.getTrimmedLength(s) == 0)
+                {
+                    // show the palettes again right away
+                    ++mSearchGeneration;
+                    showSearchResults(null);
+                }
+                else
+                {
+                    mHandler.postDelayed(mSearchRunnable, SEARCH_DELAY);
+                }
+            }
+        });
         return view;
     }
 
 
+    @Override
+    public void onDestroyView()
+    {
+        mHandler.removeCallbacks(mSearchRunnable);
+        // drop any pending results
+        ++mSearchGeneration;
+        mPager = null;
+        mPagerAdapter = null;
+        super.onDestroyView();
+    }
+
+
+    /**
+     * Search for colors with the given name in the background and show the results when done.
+     *
+     * @param query
+     *         The query.
+     */
+    private void search(final String query)
+    {
+        final int generation = ++mSearchGeneration;
+        final int palettesGeneration = mPalettesGeneration;
+        final ColorNameIndex nameIndex = mNameIndex;
+        // palettes are replaced in place when they have been loaded, so the index is built from a copy
+        final Palette[] palettes = nameIndex == null ? mPalettes.clone() : null;
+        SEARCH_EXECUTOR.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final ColorNameIndex index = nameIndex == null ? new ColorNameIndex(palettes) : nameIndex;
+                final List<ColorMatch> matches = index.search(query);
+                mHandler.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (palettesGeneration != mPalettesGeneration)
+                        {
+                            // the palettes have changed in the meantime, the index and the results are outdated
+                            if (generation == mSearchGeneration && mSearchResultsView != null)
+                            {
+                                search(query);
+                            }
+                            return;
+                        }
+                        mNameIndex = index;
+                        if (generation == mSearchGeneration && mSearchResultsView != null)
+                        {
+                            showSearchResults(matches);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+
+    /**
+     * Show the given search results or the palettes if <code>matches</code> is <code>null</code>.
+     *
+     * @param matches
+     *         The {@link ColorMatch}es to show or <code>null</code>.
+     */
+    private void showSearchResults(final List<ColorMatch> matches)
+    {
+        if (matches == null)
+        {
+            mSearchResultsView.setVisibility(View.GONE);
+            mSearchResultsView.setAdapter(null);
+            mPager.setVisibility(View.VISIBLE);
+            return;
+        }
+
+        int[] colors = new int[matches.size()];
+        String[] names = new String[colors.length];
+        for (int i = 0; i < colors.length; ++i)
+        {
+            ColorMatch match = matches.get(i);
+            colors[i] = match.color();
+            names[i] = match.name();
+        }
+        mSearchResultsView.setAdapter(new PaletteGridAdapter(getActivity(), new ArrayPalette(null, null, colors, names)));
+        mSearchResultsView.setOnItemClickListener(new AdapterView.OnItemClickListener()
+        {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id)
+            {
+                ColorMatch match = matches.get(position);
+                onColorSelected(match.color(), match.paletteId(), match.name(), match.palette().name());
+            }
+        });
+        mSearchResultsView.setVisibility(View.VISIBLE);
+        // keep the pager in the layout, so the dialog doesn't change its size
+        mPager.setVisibility(View.INVISIBLE);
+    }
+
+
     @NonNull
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState)
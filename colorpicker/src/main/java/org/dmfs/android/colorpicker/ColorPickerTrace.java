@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.support.annotation.Nullable;
+import android.support.v4.os.TraceCompat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Trace sections of the hot paths of the color picker. Each section shows up in systrace and Perfetto under one of the names below. The names are part of
+ * the public API, they don't change between library versions, so they can be used to track performance across versions.
+ * <p>
+ * In addition, a {@link TimingListener} can be registered to receive the duration of each section in production builds, where tracing is not available.
+ *
+ * @author Marten Gajda
+ */
+public final class ColorPickerTrace
+{
+    /**
+     * Creating the view of the {@link ColorPickerDialogFragment}.
+     */
+    public final static String DIALOG_CREATE_VIEW = "ColorPicker.dialog.createView";
+
+    /**
+     * Adding a palette page to the pager, including binding the palette to the page view.
+     */
+    public final static String PAGE_INSTANTIATE = "ColorPicker.page.instantiate";
+
+    /**
+     * Inflating the view of a palette page. This happens only for pages that can't reuse the view of a recycled page.
+     */
+    public final static String PAGE_INFLATE = "ColorPicker.page.inflate";
+
+    /**
+     * Measuring the pager, which determines the size of the palette grids.
+     */
+    public final static String PAGER_MEASURE = "ColorPicker.pager.measure";
+
+    /**
+     * Calculating the swatch size and position of a palette grid after its size has changed.
+     */
+    public final static String GRID_LAYOUT = "ColorPicker.grid.layout";
+
+    /**
+     * Getting the view of a swatch in a grid of search results.
+     */
+    public final static String GRID_GET_VIEW = "ColorPicker.grid.getView";
+
+    /**
+     * Rendering the preview of a palette for the tab strip. This runs on a background thread.
+     */
+    public final static String PREVIEW_RENDER = "ColorPicker.preview.render";
+
+    /**
+     * Rendering the previews of all palettes into an atlas. This runs on a background thread.
+     */
+    public final static String PREVIEW_RENDER_ATLAS = "ColorPicker.preview.renderAtlas";
+
+    /**
+     * Loading the preview of a palette from the disk cache. This runs on a background thread.
+     */
+    public final static String PREVIEW_DISK_READ = "ColorPicker.preview.diskRead";
+
+    /**
+     * The current {@link TimingListener}.
+     */
+    private final static AtomicReference<TimingListener> LISTENER = new AtomicReference<>();
+
+
+    private ColorPickerTrace()
+    {
+    }
+
+
+    /**
+     * Set a listener to receive the durations of all sections.
+     *
+     * @param listener
+     *         A {@link TimingListener} or <code>null</code> to remove the current one.
+     */
+    public static void setTimingListener(@Nullable TimingListener listener)
+    {
+        LISTENER.set(listener);
+    }
+
+
+    /**
+     * Begin a section. Every call must be followed by a call to {@link #end(String, long)} on the same thread.
+     *
+     * @param section
+     *         The name of the section.
+     *
+     * @return The start time to pass to {@link #end(String, long)}.
+     */
+    static long begin(String section)
+    {
+        TraceCompat.beginSection(section);
+        return LISTENER.get() == null ? 0 : System.nanoTime();
+    }
+
+
+    /**
+     * End the current section.
+     *
+     * @param section
+     *         The name of the section.
+     * @param start
+     *         The value returned by {@link #begin(String)}.
+     */
+    static void end(String section, long start)
+    {
+        TraceCompat.endSection();
+        TimingListener listener = LISTENER.get();
+        if (listener != null && start != 0)
+        {
+            listener.onSectionEnd(section, System.nanoTime() - start);
+        }
+    }
+
+
+    /**
+     * Listener interface for section durations.
+     */
+    public interface TimingListener
+    {
+        /**
+         * Called when a section ends. This is called on the thread that ran the section, which is not always the main thread, and it's called very often, so
+         * implementations should return quickly.
+         *
+         * @param section
+         *         The name of the section, one of the constants of {@link ColorPickerTrace}.
+         * @param durationNanos
+         *         The duration of the section in nanoseconds.
+         */
+        void onSectionEnd(String section, long durationNanos);
+    }
+}
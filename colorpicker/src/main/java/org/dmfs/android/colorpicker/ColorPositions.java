@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import org.dmfs.android.colorpicker.palettes.Palette;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+
+/**
+ * Finds the first position of a color in an array of {@link Palette}s, so the {@link ColorPickerDialogFragment} can select a color without scanning all
+ * colors.
+ * <p>
+ * The colors of a palette are collected by {@link #colorsOf(Palette)}, which should run in the background, and are added with {@link #add(Palette, long[])}
+ * when they are available, so palettes are indexed one by one. Colors are kept in sorted primitive arrays and looked up with a binary search per palette.
+ * All other methods are not thread-safe and should only be called on the main thread.
+ *
+ * @author Marten Gajda
+ */
+final class ColorPositions
+{
+    /**
+     * The sorted colors of each palette that has been added, each with the color in the upper and its index in the lower 32 bits.
+     */
+    private final Map<Palette, long[]> mPaletteColors = new IdentityHashMap<>();
+    /**
+     * The current palettes.
+     */
+    private Palette[] mPalettes;
+
+
+    ColorPositions(Palette[] palettes)
+    {
+        update(palettes);
+    }
+
+
+    /**
+     * Collects the colors of the given palette. This doesn't touch the state of any {@link ColorPositions} and can run on any thread.
+     *
+     * @param palette
+     *         A {@link Palette}.
+     *
+     * @return The colors of the palette, each with the color in the upper and its index in the lower 32 bits, sorted by color and index.
+     */
+    static long[] colorsOf(Palette palette)
+    {
+        int count = palette.numberOfColors();
+        long[] result = new long[count];
+        for (int i = 0; i < count; ++i)
+        {
+            result[i] = ((long) palette.colorAt(i) << 32) | i;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+
+    /**
+     * Updates the palette positions after palettes have been replaced or removed.
+     *
+     * @param palettes
+     *         The current palettes.
+     */
+    void update(Palette[] palettes)
+    {
+        mPalettes = palettes.clone();
+        if (mPaletteColors.isEmpty())
+        {
+            return;
+        }
+        Map<Palette, long[]> retained = new IdentityHashMap<>();
+        for (Palette palette : palettes)
+        {
+            long[] colors = mPaletteColors.get(palette);
+            if (colors != null)
+            {
+                retained.put(palette, colors);
+            }
+        }
+        mPaletteColors.clear();
+        mPaletteColors.putAll(retained);
+    }
+
+
+    /**
+     * Adds the colors of the given palette. Has no effect if the palette is not one of the current palettes.
+     *
+     * @param palette
+     *         The {@link Palette}.
+     * @param colors
+     *         The colors of the palette, as returned by {@link #colorsOf(Palette)}.
+     */
+    void add(Palette palette, long[] colors)
+    {
+        for (Palette p : mPalettes)
+        {
+            if (p == palette)
+            {
+                mPaletteColors.put(palette, colors);
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the first position of the given color among the palettes that have been added.
+     *
+     * @param argb
+     *         The color to look up.
+     *
+     * @return The position with the palette index in the upper and the color index in the lower 32 bits or <code>-1</code> if no palette that has been
+     * added contains the color.
+     */
+    long positionOf(int argb)
+    {
+        for (int i = 0; i < mPalettes.length; ++i)
+        {
+            long[] colors = mPaletteColors.get(mPalettes[i]);
+            if (colors == null)
+            {
+                continue;
+            }
+            int index = firstIndexOf(colors, argb);
+            if (index >= 0)
+            {
+                return ((long) i << 32) | index;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Returns the first index of the given color in the given sorted colors or <code>-1</code>.
+     */
+    private static int firstIndexOf(long[] colors, int argb)
+    {
+        // the smallest possible entry of this color, so the search ends at its first index
+        long key = (long) argb << 32;
+        int low = 0;
+        int high = colors.length;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (colors[mid] < key)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low < colors.length && (int) (colors[low] >> 32) == argb ? (int) colors[low] : -1;
+    }
+}
@@ -19,9 +19,6 @@ package org.dmfs.android.colorpicker;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
-import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.ArcShape;
-import android.graphics.drawable.shapes.Shape;
 import android.support.annotation.NonNull;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -49,11 +46,35 @@ public final class PaletteGridAdapter extends BaseAdapter
      */
     private final LayoutInflater mLayoutInflater;
 
+    /**
+     * The width of the ring around the selected color in pixels.
+     */
+    private final float mRingWidth;
+
+    /**
+     * The position of the color to highlight or <code>-1</code>.
+     */
+    private int mSelectedPosition = -1;
+
 
     public PaletteGridAdapter(@NonNull Context context, @NonNull Palette palette)
     {
         mPalette = palette;
         mLayoutInflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+        mRingWidth = 3 * context.getResources().getDisplayMetrics().density;
+    }
+
+
+    /**
+     * Set the position of the color to highlight.
+     *
+     * @param position
+     *         The position of the color or <code>-1</code> to highlight nothing.
+     */
+    public void setSelectedPosition(int position)
+    {
+        mSelectedPosition = position;
+        notifyDataSetChanged();
     }
 
 
@@ -84,29 +105,39 @@ public final class PaletteGridAdapter extends BaseAdapter
     @Override
     public View getView(int position, View convertView, ViewGroup parent)
     {
-        View view = convertView;
-        if (view == null)
+        long start = ColorPickerTrace.begin(ColorPickerTrace.GRID_GET_VIEW);
+        try
         {
-            view = mLayoutInflater.inflate(R.layout.dmfs_colorpickerdialog_palette_field, null);
+            View view = convertView;
+            SwatchDrawable swatch;
+            if (view == null)
+            {
+                view = mLayoutInflater.inflate(R.layout.dmfs_colorpickerdialog_palette_field, null);
+                // TODO: allow to customize the shape
+                swatch = new SwatchDrawable(mRingWidth);
+                if (android.os.Build.VERSION.SDK_INT < 16)
+                {
+                    view.setBackgroundDrawable(swatch);
+                }
+                else
+                {
+                    view.setBackground(swatch);
+                }
+            }
+            else
+            {
+                // recycled views already have a swatch, just update it
+                swatch = (SwatchDrawable) view.getBackground();
+            }
+
+            swatch.setColor(mPalette.colorAt(position));
+            swatch.setSelected(position == mSelectedPosition);
+            return view;
         }
-
-        // set the background to a colored circle
-        // TODO: allow to customize the shape
-        Shape shape = new ArcShape(0, 360);
-        ShapeDrawable bg = new ShapeDrawable(shape);
-        bg.getPaint().setColor(mPalette.colorAt(position));
-
-        if (android.os.Build.VERSION.SDK_INT < 16)
+        finally
         {
-            view.setBackgroundDrawable(bg);
+            ColorPickerTrace.end(ColorPickerTrace.GRID_GET_VIEW, start);
         }
-        else
-        {
-            view.setBackground(bg);
-        }
-
-        return view;
-
     }
 
 
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.annotation.SuppressLint;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.dmfs.android.colorpicker.palettes.Palette;
+
+import java.util.Arrays;
+
+
+/**
+ * A {@link RecyclerView} adapter for a single palette. All instances use the same view type and view holder, so swatch views can be shared between pages
+ * through a common {@link RecyclerView.RecycledViewPool}. Item ids are stable, the id of a swatch is its position in the palette.
+ *
+ * @author Marten Gajda
+ */
+public final class PaletteRecyclerAdapter extends RecyclerView.Adapter<PaletteRecyclerAdapter.SwatchHolder>
+{
+    /**
+     * The view type of all swatches.
+     */
+    final static int VIEW_TYPE_SWATCH = 0;
+
+    private final static int RING_WIDTH = 3; // dp
+
+    private Palette mPalette;
+    private final OnSwatchClickListener mListener;
+    private int mSelectedPosition = -1;
+
+    /**
+     * The content descriptions of the swatches that have been bound so far, so rebinding a swatch doesn't allocate anything.
+     */
+    private String[] mDescriptions;
+
+
+    public PaletteRecyclerAdapter(@NonNull Palette palette, @NonNull OnSwatchClickListener listener)
+    {
+        mPalette = palette;
+        mListener = listener;
+        setHasStableIds(true);
+    }
+
+
+    /**
+     * Replace the palette. This allows pages to keep their adapter when they show another palette. The selection is cleared.
+     *
+     * @param palette
+     *         The new {@link Palette}.
+     */
+    public void setPalette(@NonNull Palette palette)
+    {
+        mPalette = palette;
+        mSelectedPosition = -1;
+        if (mDescriptions != null)
+        {
+            if (mDescriptions.length >= palette.numberOfColors())
+            {
+                // reuse the array, it just needs to be large enough
+                Arrays.fill(mDescriptions, null);
+            }
+            else
+            {
+                mDescriptions = null;
+            }
+        }
+        notifyDataSetChanged();
+    }
+
+
+    /**
+     * Set the position of the color to highlight.
+     *
+     * @param position
+     *         The position of the color or <code>-1</code> to highlight nothing.
+     */
+    public void setSelectedPosition(int position)
+    {
+        int previous = mSelectedPosition;
+        mSelectedPosition = position;
+        if (previous >= 0)
+        {
+            notifyItemChanged(previous);
+        }
+        if (position >= 0)
+        {
+            notifyItemChanged(position);
+        }
+    }
+
+
+    @NonNull
+    @SuppressLint("NewApi")
+    @SuppressWarnings("deprecation")
+    @Override
+    public SwatchHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType)
+    {
+        SquareLayout view = new SquareLayout(parent.getContext());
+        view.setLayoutParams(new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        view.setClickable(true);
+        view.setFocusable(true);
+        SwatchDrawable swatch = new SwatchDrawable(RING_WIDTH * parent.getResources().getDisplayMetrics().density);
+        if (android.os.Build.VERSION.SDK_INT < 16)
+        {
+            view.setBackgroundDrawable(swatch);
+        }
+        else
+        {
+            view.setBackground(swatch);
+        }
+        return new SwatchHolder(view, swatch);
+    }
+
+
+    @Override
+    public void onBindViewHolder(@NonNull SwatchHolder holder, int position)
+    {
+        holder.mSwatch.setColor(mPalette.colorAt(position));
+        holder.mSwatch.setSelected(position == mSelectedPosition);
+        holder.itemView.setSelected(position == mSelectedPosition);
+        holder.itemView.setContentDescription(description(position));
+        // holders are shared between pages, so the listener needs to be updated with every bind
+        holder.mListener = mListener;
+    }
+
+
+    @Override
+    public int getItemCount()
+    {
+        return mPalette.numberOfColors();
+    }
+
+
+    @Override
+    public long getItemId(int position)
+    {
+        return position;
+    }
+
+
+    @Override
+    public int getItemViewType(int position)
+    {
+        return VIEW_TYPE_SWATCH;
+    }
+
+
+    /**
+     * Returns the content description of the swatch at the given position, which is the name of the color or its hex value.
+     */
+    private String description(int position)
+    {
+        if (mDescriptions == null)
+        {
+            mDescriptions = new String[mPalette.numberOfColors()];
+        }
+        String description = mDescriptions[position];
+        if (description == null)
+        {
+            String name = mPalette.nameOfColorAt(position);
+            description = name != null ? name : String.format("#%06X", mPalette.colorAt(position) & 0xffffff);
+            mDescriptions[position] = description;
+        }
+        return description;
+    }
+
+
+    /**
+     * Returns the number of columns to use for this palette.
+     *
+     * @return The number of columns.
+     */
+    public int getNumColumns()
+    {
+        return Math.max(1, mPalette.numberOfColumns());
+    }
+
+
+    /**
+     * Listener interface for clicks on colors.
+     */
+    public interface OnSwatchClickListener
+    {
+        /**
+         * Called when a color has been clicked.
+         *
+         * @param position
+         *         The index of the color in the palette.
+         */
+        void onSwatchClick(int position);
+    }
+
+
+    /**
+     * The view holder of a swatch.
+     */
+    static final class SwatchHolder extends RecyclerView.ViewHolder implements View.OnClickListener
+    {
+        private final SwatchDrawable mSwatch;
+        private OnSwatchClickListener mListener;
+
+
+        SwatchHolder(View itemView, SwatchDrawable swatch)
+        {
+            super(itemView);
+            mSwatch = swatch;
+            itemView.setOnClickListener(this);
+        }
+
+
+        @Override
+        public void onClick(View v)
+        {
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && mListener != null)
+            {
+                mListener.onSwatchClick(position);
+            }
+        }
+    }
+
+
+    /**
+     * An {@link RecyclerView.ItemDecoration} that adds equal spacing between the cells of a grid.
+     */
+    static final class SpacingDecoration extends RecyclerView.ItemDecoration
+    {
+        private final int mSpacing;
+
+
+        SpacingDecoration(int spacing)
+        {
+            mSpacing = spacing;
+        }
+
+
+        @Override
+        public void getItemOffsets(@NonNull Rect outRect, @NonNull View view, @NonNull RecyclerView parent, @NonNull RecyclerView.State state)
+        {
+            int position = parent.getChildAdapterPosition(view);
+            int columns = ((GridLayoutManager) parent.getLayoutManager()).getSpanCount();
+            if (position == RecyclerView.NO_POSITION)
+            {
+                outRect.set(0, 0, 0, 0);
+                return;
+            }
+            int column = position % columns;
+            // distribute the spacing so all cells have the same width
+            outRect.left = column * mSpacing / columns;
+            outRect.right = mSpacing - (column + 1) * mSpacing / columns;
+            outRect.top = position >= columns ? mSpacing : 0;
+            outRect.bottom = 0;
+        }
+    }
+}
@@ -0,0 +1,616 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.util.AttributeSet;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.VelocityTracker;
+import android.view.ViewConfiguration;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.OverScroller;
+
+import org.dmfs.android.colorpicker.palettes.Palette;
+
+import java.util.List;
+
+
+/**
+ * A view that shows all colors of a {@link Palette} in a square grid. In contrast to a {@link android.widget.GridView} this doesn't use a child view per
+ * color, all swatches are drawn in a single pass and touches are mapped to colors by grid arithmetic. The swatches are exposed to accessibility services as
+ * virtual views.
+ * <p>
+ * The grid takes the width of the largest square that fits the available space. If the palette has more rows than columns, the grid scrolls vertically.
+ *
+ * @author Marten Gajda
+ */
+public final class PaletteView extends View
+{
+    private final static int SPACING = 8; // dp
+    private final static int RING_WIDTH = 3; // dp
+
+    /**
+     * The color of the overlay of pressed and focused swatches.
+     */
+    private final static int HIGHLIGHT_COLOR = 0x40000000;
+
+    /**
+     * A swatch drawable that's used to draw all the swatches.
+     */
+    private final SwatchDrawable mSwatch;
+    private final Paint mHighlightPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Rect mCellBounds = new Rect();
+    private final int mSpacing;
+    private final SwatchTouchHelper mTouchHelper;
+    private final OverScroller mScroller;
+    private final int mTouchSlop;
+    private final int mMinimumVelocity;
+    private final int mMaximumVelocity;
+
+    private Palette mPalette;
+    private int mColumns = 1;
+    private int mRows;
+    /**
+     * The size of a single swatch in pixels.
+     */
+    private int mCellSize;
+    /**
+     * The horizontal offset of the grid, which centers the grid if it doesn't fill the entire width due to rounding.
+     */
+    private int mGridLeft;
+    private int mSelectedIndex = -1;
+    private boolean mScrollToSelection;
+    private OnSwatchClickListener mListener;
+
+    private VelocityTracker mVelocityTracker;
+    private float mDownX;
+    private float mDownY;
+    private float mLastY;
+    private boolean mDragging;
+    private int mPressedIndex = -1;
+
+
+    public PaletteView(Context context)
+    {
+        this(context, null);
+    }
+
+
+    public PaletteView(Context context, AttributeSet attrs)
+    {
+        this(context, attrs, 0);
+    }
+
+
+    public PaletteView(Context context, AttributeSet attrs, int defStyleAttr)
+    {
+        super(context, attrs, defStyleAttr);
+        float density = context.getResources().getDisplayMetrics().density;
+        mSpacing = (int) (SPACING * density);
+        mSwatch = new SwatchDrawable(RING_WIDTH * density);
+        mHighlightPaint.setColor(HIGHLIGHT_COLOR);
+        mScroller = new OverScroller(context);
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinimumVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
+        mTouchHelper = new SwatchTouchHelper();
+        ViewCompat.setAccessibilityDelegate(this, mTouchHelper);
+        setFocusable(true);
+    }
+
+
+    /**
+     * Set the {@link Palette} to show.
+     *
+     * @param palette
+     *         The {@link Palette}.
+     */
+    public void setPalette(@NonNull Palette palette)
+    {
+        mPalette = palette;
+        mColumns = Math.max(1, palette.numberOfColumns());
+        mRows = (palette.numberOfColors() + mColumns - 1) / mColumns;
+        mPressedIndex = -1;
+        scrollTo(0, 0);
+        updateGeometry();
+        mTouchHelper.invalidateRoot();
+        invalidate();
+    }
+
+
+    /**
+     * Set the index of the color to highlight. The grid scrolls to show the color, if necessary.
+     *
+     * @param index
+     *         The index of the color or <code>-1</code> to highlight nothing.
+     */
+    public void setSelectedIndex(int index)
+    {
+        if (index == mSelectedIndex)
+        {
+            return;
+        }
+        int previous = mSelectedIndex;
+        mSelectedIndex = index;
+        mScrollToSelection = index >= 0;
+        if (mScrollToSelection && mCellSize > 0)
+        {
+            scrollToShow(index);
+        }
+        if (previous >= 0)
+        {
+            mTouchHelper.invalidateVirtualView(previous);
+        }
+        if (index >= 0)
+        {
+            mTouchHelper.invalidateVirtualView(index);
+        }
+        invalidate();
+    }
+
+
+    /**
+     * Set the listener to notify when a color has been clicked.
+     *
+     * @param listener
+     *         An {@link OnSwatchClickListener} or <code>null</code>.
+     */
+    public void setOnSwatchClickListener(@Nullable OnSwatchClickListener listener)
+    {
+        mListener = listener;
+    }
+
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+    {
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        int verticalPadding = getPaddingTop() + getPaddingBottom();
+
+        // the side of the largest square that fits
+        int side = SquareLayout.squareSize(
+                MeasureSpec.makeMeasureSpec(Math.max(0, MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding), MeasureSpec.getMode(widthMeasureSpec)),
+                MeasureSpec.makeMeasureSpec(Math.max(0, MeasureSpec.getSize(heightMeasureSpec) - verticalPadding), MeasureSpec.getMode(heightMeasureSpec)),
+                Math.max(getSuggestedMinimumWidth(), getSuggestedMinimumHeight()));
+
+        setMeasuredDimension(resolveSize(side + horizontalPadding, widthMeasureSpec), resolveSize(side + verticalPadding, heightMeasureSpec));
+    }
+
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh)
+    {
+        super.onSizeChanged(w, h, oldw, oldh);
+        updateGeometry();
+        mTouchHelper.invalidateRoot();
+    }
+
+
+    /**
+     * Update the size of the swatches to the current width and column count.
+     */
+    private void updateGeometry()
+    {
+        long start = ColorPickerTrace.begin(ColorPickerTrace.GRID_LAYOUT);
+        try
+        {
+            int available = getWidth() - getPaddingLeft() - getPaddingRight();
+            int columns = mColumns;
+            mCellSize = Math.max(0, (available - mSpacing * (columns - 1)) / columns);
+            mGridLeft = getPaddingLeft() + (available - (mCellSize * columns + mSpacing * (columns - 1))) / 2;
+
+            scrollTo(0, Math.min(getScrollY(), maxScrollY()));
+            if (mScrollToSelection && mCellSize > 0)
+            {
+                scrollToShow(mSelectedIndex);
+            }
+        }
+        finally
+        {
+            ColorPickerTrace.end(ColorPickerTrace.GRID_LAYOUT, start);
+        }
+    }
+
+
+    @Override
+    protected void onDraw(Canvas canvas)
+    {
+        Palette palette = mPalette;
+        if (palette == null || mCellSize == 0)
+        {
+            return;
+        }
+
+        // draw the visible rows only
+        int pitch = mCellSize + mSpacing;
+        int scrollY = getScrollY();
+        int firstRow = Math.max(0, (scrollY - getPaddingTop()) / pitch);
+        int lastRow = Math.min(mRows - 1, (scrollY + getHeight() - getPaddingTop()) / pitch);
+        int count = palette.numberOfColors();
+        int focused = mTouchHelper.getKeyboardFocusedVirtualViewId();
+        SwatchDrawable swatch = mSwatch;
+        Rect bounds = mCellBounds;
+
+        for (int index = firstRow * mColumns, end = Math.min(count, (lastRow + 1) * mColumns); index < end; ++index)
+        {
+            cellBounds(index, bounds);
+            swatch.setBounds(bounds);
+            swatch.setColor(palette.colorAt(index));
+            swatch.setSelected(index == mSelectedIndex);
+            swatch.draw(canvas);
+
+            if (index == mPressedIndex || index == focused)
+            {
+                canvas.drawCircle(bounds.exactCenterX(), bounds.exactCenterY(), mCellSize / 2f, mHighlightPaint);
+            }
+        }
+    }
+
+
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(MotionEvent event)
+    {
+        if (mPalette == null)
+        {
+            return false;
+        }
+        if (mVelocityTracker == null)
+        {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(event);
+
+        float x = event.getX();
+        float y = event.getY();
+        switch (event.getActionMasked())
+        {
+            case MotionEvent.ACTION_DOWN:
+                // a touch stops any fling and doesn't count as a click in that case
+                mDragging = !mScroller.isFinished();
+                mScroller.abortAnimation();
+                mDownX = x;
+                mDownY = y;
+                mLastY = y;
+                setPressedIndex(mDragging ? -1 : indexAt(x, y));
+                return true;
+
+            case MotionEvent.ACTION_MOVE:
+                if (!mDragging && Math.abs(y - mDownY) > mTouchSlop && maxScrollY() > 0)
+                {
+                    mDragging = true;
+                    mLastY = y;
+                    setPressedIndex(-1);
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                if (mDragging)
+                {
+                    scrollTo(0, Math.max(0, Math.min(maxScrollY(), getScrollY() + (int) (mLastY - y))));
+                    mLastY = y;
+                    awakenScrollBars();
+                }
+                else if (Math.abs(x - mDownX) > mTouchSlop || Math.abs(y - mDownY) > mTouchSlop)
+                {
+                    setPressedIndex(-1);
+                }
+                return true;
+
+            case MotionEvent.ACTION_UP:
+                if (mDragging)
+                {
+                    mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+                    int velocity = (int) mVelocityTracker.getYVelocity();
+                    if (Math.abs(velocity) > mMinimumVelocity)
+                    {
+                        mScroller.fling(0, getScrollY(), 0, -velocity, 0, 0, 0, maxScrollY());
+                        ViewCompat.postInvalidateOnAnimation(this);
+                    }
+                }
+                else if (mPressedIndex >= 0 && indexAt(x, y) == mPressedIndex)
+                {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    clickSwatch(mPressedIndex);
+                }
+                endTouch();
+                return true;
+
+            case MotionEvent.ACTION_CANCEL:
+                endTouch();
+                return true;
+
+            default:
+                return true;
+        }
+    }
+
+
+    @Override
+    public void computeScroll()
+    {
+        if (mScroller.computeScrollOffset())
+        {
+            scrollTo(0, mScroller.getCurrY());
+            awakenScrollBars();
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+    }
+
+
+    @Override
+    protected int computeVerticalScrollRange()
+    {
+        return contentHeight();
+    }
+
+
+    @Override
+    protected int computeVerticalScrollExtent()
+    {
+        return getHeight();
+    }
+
+
+    @Override
+    protected int computeVerticalScrollOffset()
+    {
+        return getScrollY();
+    }
+
+
+    @Override
+    public boolean canScrollVertically(int direction)
+    {
+        return direction < 0 ? getScrollY() > 0 : getScrollY() < maxScrollY();
+    }
+
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event)
+    {
+        return mTouchHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event)
+    {
+        return mTouchHelper.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect)
+    {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        mTouchHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+
+    private void endTouch()
+    {
+        mDragging = false;
+        setPressedIndex(-1);
+        if (mVelocityTracker != null)
+        {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+
+    private void setPressedIndex(int index)
+    {
+        if (index != mPressedIndex)
+        {
+            mPressedIndex = index;
+            invalidate();
+        }
+    }
+
+
+    private void clickSwatch(int index)
+    {
+        mTouchHelper.sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_CLICKED);
+        if (mListener != null)
+        {
+            mListener.onSwatchClick(this, index);
+        }
+    }
+
+
+    /**
+     * Returns the index of the color at the given view coordinates or <code>-1</code> if there is no color at that point.
+     */
+    private int indexAt(float x, float y)
+    {
+        if (mPalette == null || mCellSize == 0)
+        {
+            return -1;
+        }
+        int pitch = mCellSize + mSpacing;
+        int gridX = (int) x - mGridLeft;
+        int gridY = (int) y + getScrollY() - getPaddingTop();
+        if (gridX < 0 || gridY < 0 || gridX % pitch >= mCellSize || gridY % pitch >= mCellSize)
+        {
+            // outside of the grid or between two swatches
+            return -1;
+        }
+        int column = gridX / pitch;
+        int index = gridY / pitch * mColumns + column;
+        return column < mColumns && index < mPalette.numberOfColors() ? index : -1;
+    }
+
+
+    /**
+     * Returns the bounds of the color with the given index in content coordinates.
+     */
+    private void cellBounds(int index, Rect bounds)
+    {
+        int pitch = mCellSize + mSpacing;
+        int left = mGridLeft + index % mColumns * pitch;
+        int top = getPaddingTop() + index / mColumns * pitch;
+        bounds.set(left, top, left + mCellSize, top + mCellSize);
+    }
+
+
+    private int contentHeight()
+    {
+        return getPaddingTop() + getPaddingBottom() + Math.max(0, mRows * (mCellSize + mSpacing) - mSpacing);
+    }
+
+
+    private int maxScrollY()
+    {
+        return Math.max(0, contentHeight() - getHeight());
+    }
+
+
+    private void scrollToShow(int index)
+    {
+        mScrollToSelection = false;
+        if (index < 0 || mPalette == null || index >= mPalette.numberOfColors())
+        {
+            return;
+        }
+        cellBounds(index, mCellBounds);
+        int scrollY = getScrollY();
+        if (mCellBounds.top - getPaddingTop() < scrollY)
+        {
+            scrollY = mCellBounds.top - getPaddingTop();
+        }
+        else if (mCellBounds.bottom + getPaddingBottom() > scrollY + getHeight())
+        {
+            scrollY = mCellBounds.bottom + getPaddingBottom() - getHeight();
+        }
+        scrollTo(0, Math.max(0, Math.min(maxScrollY(), scrollY)));
+    }
+
+
+    /**
+     * Listener interface for clicks on colors.
+     */
+    public interface OnSwatchClickListener
+    {
+        /**
+         * Called when a color has been clicked.
+         *
+         * @param view
+         *         The {@link PaletteView}.
+         * @param index
+         *         The index of the color in the palette.
+         */
+        void onSwatchClick(PaletteView view, int index);
+    }
+
+
+    /**
+     * Exposes the swatches as virtual views to accessibility services and handles keyboard navigation.
+     */
+    private final class SwatchTouchHelper extends ExploreByTouchHelper
+    {
+        SwatchTouchHelper()
+        {
+            super(PaletteView.this);
+        }
+
+
+        @Override
+        protected int getVirtualViewAt(float x, float y)
+        {
+            int index = indexAt(x, y);
+            return index >= 0 ? index : INVALID_ID;
+        }
+
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds)
+        {
+            if (mPalette == null || mCellSize == 0)
+            {
+                return;
+            }
+            int pitch = mCellSize + mSpacing;
+            int scrollY = getScrollY();
+            int firstRow = Math.max(0, (scrollY - getPaddingTop()) / pitch);
+            int lastRow = Math.min(mRows - 1, (scrollY + getHeight() - getPaddingTop()) / pitch);
+            for (int index = firstRow * mColumns, end = Math.min(mPalette.numberOfColors(), (lastRow + 1) * mColumns); index < end; ++index)
+            {
+                virtualViewIds.add(index);
+            }
+        }
+
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, @NonNull AccessibilityNodeInfoCompat node)
+        {
+            if (mPalette == null || virtualViewId >= mPalette.numberOfColors())
+            {
+                // the palette has changed, this node is gone
+                node.setContentDescription("");
+                node.setBoundsInParent(new Rect(0, 0, 1, 1));
+                return;
+            }
+            String name = mPalette.nameOfColorAt(virtualViewId);
+            node.setContentDescription(name != null ? name : String.format("#%06X", mPalette.colorAt(virtualViewId) & 0xffffff));
+            Rect bounds = new Rect();
+            cellBounds(virtualViewId, bounds);
+            bounds.offset(0, -getScrollY());
+            node.setBoundsInParent(bounds);
+            node.setSelected(virtualViewId == mSelectedIndex);
+            node.setClickable(true);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, @Nullable Bundle arguments)
+        {
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK && mPalette != null && virtualViewId < mPalette.numberOfColors())
+            {
+                clickSwatch(virtualViewId);
+                return true;
+            }
+            return false;
+        }
+
+
+        @Override
+        protected void onVirtualViewKeyboardFocusChanged(int virtualViewId, boolean hasFocus)
+        {
+            if (hasFocus)
+            {
+                scrollToShow(virtualViewId);
+            }
+            invalidate();
+        }
+    }
+}
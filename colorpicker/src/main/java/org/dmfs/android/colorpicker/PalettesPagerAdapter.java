@@ -22,53 +22,361 @@ import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.drawable.BitmapDrawable;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
-import android.support.v4.app.Fragment;
-import android.support.v4.app.FragmentManager;
-import android.support.v4.app.FragmentStatePagerAdapter;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
 import android.support.v4.util.LruCache;
+import android.support.v4.view.PagerAdapter;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
 
 import org.dmfs.android.colorpicker.palettes.Palette;
 import org.dmfs.android.view.IDrawableTitlePagerAdapter;
+import org.dmfs.android.view.ViewPager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 
 /**
- * Pager adapter for the {@link PaletteFragment}s.
+ * A circular pager adapter for palette pages. Pages are plain views, no fragments involved. Views of pages that have been scrolled out are recycled for new
+ * pages, so swiping through the palettes doesn't inflate anything once the first few pages have been created. The adapter doesn't save any page state.
+ * <p>
+ * The adapter provides a few copies of the palettes in a row. Call {@link #recenter(ViewPager)} whenever the pager comes to rest to move back to the
+ * middle copy, which lets the user swipe in either direction forever while the number of pages stays small.
  *
  * @author Marten Gajda
  */
-public final class PalettesPagerAdapter extends FragmentStatePagerAdapter implements IDrawableTitlePagerAdapter
+public final class PalettesPagerAdapter extends PagerAdapter implements IDrawableTitlePagerAdapter
 {
     private final static int PREVIEW_SIZE = 32; // dp
 
-    private final static int FACTOR = 100;
+    /**
+     * The number of copies of the palettes. There must be at least one copy on each side of the middle one.
+     */
+    private final static int CYCLES = 3;
+
+    /**
+     * The maximum number of recycled page views of each type.
+     */
+    private final static int MAX_RECYCLED_PAGES = 3;
+
+    private final static int SPACING = 8; // dp
+
+    /**
+     * The number of previews to render ahead on each side of the current page.
+     */
+    private final static int PREFETCH_DISTANCE = 2;
+
+    /**
+     * The upper limit of the preview cache in bytes.
+     */
+    private final static int MAX_PREVIEW_CACHE_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * The executor that renders the previews.
+     */
+    private final static Executor PREVIEW_EXECUTOR = AsyncTask.THREAD_POOL_EXECUTOR;
+
     private final Resources mResources;
     private final float mDensity;
-    private final PreviewCache mCache = new PreviewCache(15);
-    private final Palette[] mPalettes;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final int mPreviewSize;
+    private final PreviewCache mCache;
+    private final OnColorSelectedListener mListener;
+    private Palette[] mPalettes;
+    /**
+     * The index of the palette with the selected color.
+     */
+    private int mSelectedPalette;
+    /**
+     * The index of the selected color or <code>-1</code>.
+     */
+    private int mSelectedColor = -1;
+    /**
+     * Whether pages use a {@link RecyclerView} instead of a {@link PaletteView}.
+     */
+    private boolean mRecyclerPages;
+    /**
+     * The pool of swatch views shared by all {@link RecyclerView} pages.
+     */
+    private final RecyclerView.RecycledViewPool mSwatchPool = new RecyclerView.RecycledViewPool();
+    /**
+     * The pages that are currently attached to the pager.
+     */
+    private final List<Page> mActivePages = new ArrayList<>(2 * CYCLES);
+    /**
+     * Pages that have been removed from the pager and can be reused.
+     */
+    private final List<Page> mRecycledPages = new ArrayList<>(2 * MAX_RECYCLED_PAGES);
+    /**
+     * The position the previews have been prefetched for.
+     */
+    private int mPrefetchedPosition = -1;
+    /**
+     * Whether previews should be rendered into an atlas.
+     */
+    private boolean mAtlasEnabled;
+    /**
+     * The atlas of all previews or <code>null</code> if previews are rendered into separate bitmaps.
+     */
+    private PreviewAtlas mAtlas;
+    /**
+     * The persistent cache of previews or <code>null</code>.
+     */
+    private PreviewDiskCache mDiskCache;
 
 
-    public PalettesPagerAdapter(Resources res, FragmentManager fm, Palette... palettes)
+    public PalettesPagerAdapter(Resources res, OnColorSelectedListener listener, Palette... palettes)
     {
-        super(fm);
         mPalettes = palettes;
         mResources = res;
+        mListener = listener;
         mDensity = res.getDisplayMetrics().density;
+        mPreviewSize = (int) (PREVIEW_SIZE * mDensity);
+        // use up to 1/32 of the heap, but at least enough for the prefetched previews
+        int minCacheSize = 2 * (PREFETCH_DISTANCE + 1) * mPreviewSize * mPreviewSize * 4;
+        mCache = new PreviewCache((int) Math.max(Math.min(Runtime.getRuntime().maxMemory() / 32, MAX_PREVIEW_CACHE_SIZE), minCacheSize));
+        updateSwatchPool();
     }
 
 
-    /*
-     * (non-Javadoc)
+    /**
+     * Set whether pages show their palette in a {@link RecyclerView} instead of a {@link PaletteView}. All {@link RecyclerView} pages share the swatch views
+     * of {@link #swatchPool()}. This only affects pages that are created afterwards.
+     *
+     * @param enabled
+     *         <code>true</code> to use {@link RecyclerView} pages.
+     */
+    public void setRecyclerPages(boolean enabled)
+    {
+        mRecyclerPages = enabled;
+    }
+
+
+    /**
+     * Set whether the previews of all palettes are rendered into a single atlas bitmap instead of one bitmap per palette. The atlas always contains all
+     * previews, so there is nothing to prefetch and no cache to evict, at the cost of rendering all previews when the dialog opens.
+     * <p>
+     * If there are too many palettes to fit into an atlas, previews are rendered into separate bitmaps anyway.
+     *
+     * @param enabled
+     *         <code>true</code> to use an atlas.
+     */
+    public void setPreviewAtlas(boolean enabled)
+    {
+        mAtlasEnabled = enabled;
+        updateAtlas();
+    }
+
+
+    /**
+     * Create or drop the atlas, depending on whether it's enabled and can hold all previews.
+     */
+    private void updateAtlas()
+    {
+        boolean enabled = mAtlasEnabled && PreviewAtlas.fits(mPalettes.length, mPreviewSize);
+        if (enabled && mAtlas == null)
+        {
+            mAtlas = new PreviewAtlas(PREVIEW_EXECUTOR, mDiskCache, mPreviewSize, mDensity);
+            mAtlas.setPalettes(mPalettes);
+            mCache.evictAll();
+        }
+        else if (!enabled && mAtlas != null)
+        {
+            mAtlas = null;
+            mPrefetchedPosition = -1;
+        }
+    }
+
+
+    /**
+     * Set a {@link PreviewDiskCache} to load previews from before rendering them. Rendered previews are stored in the cache. This has to be called before
+     * {@link #setPreviewAtlas(boolean)} and before the first preview has been requested.
+     *
+     * @param diskCache
+     *         The {@link PreviewDiskCache} or <code>null</code> to render all previews.
+     */
+    void setPreviewDiskCache(PreviewDiskCache diskCache)
+    {
+        mDiskCache = diskCache;
+    }
+
+
+    /**
+     * Returns the {@link RecyclerView.RecycledViewPool} shared by all {@link RecyclerView} pages. It's large enough to hold the swatches of the largest
+     * palette.
+     *
+     * @return The {@link RecyclerView.RecycledViewPool}.
+     */
+    public RecyclerView.RecycledViewPool swatchPool()
+    {
+        return mSwatchPool;
+    }
+
+
+    private void updateSwatchPool()
+    {
+        int max = 0;
+        for (Palette palette : mPalettes)
+        {
+            max = Math.max(max, palette.numberOfColors());
+        }
+        mSwatchPool.setMaxRecycledViews(PaletteRecyclerAdapter.VIEW_TYPE_SWATCH, max);
+    }
+
+
+    /**
+     * Set the color to highlight.
      *
-     * @see android.support.v4.app.FragmentStatePagerAdapter#getItem(int)
+     * @param palette
+     *         The index of the palette that contains the color.
+     * @param color
+     *         The index of the color in the palette or <code>-1</code> to highlight nothing.
      */
+    public void setSelection(int palette, int color)
+    {
+        mSelectedPalette = palette;
+        mSelectedColor = color;
+        for (Page page : mActivePages)
+        {
+            page.setSelectedIndex(selectedIndex(page.mIndex));
+        }
+    }
+
+
+    /**
+     * Replace all palettes.
+     *
+     * @param palettes
+     *         The new {@link Palette}s.
+     */
+    public void setPalettes(Palette... palettes)
+    {
+        mPalettes = palettes;
+        mPrefetchedPosition = -1;
+        PreviewAtlas atlas = mAtlas;
+        updateAtlas();
+        if (atlas != null && atlas == mAtlas)
+        {
+            atlas.setPalettes(palettes);
+        }
+        updateSwatchPool();
+        notifyDataSetChanged();
+    }
+
+
+    /**
+     * Replace the palette at the given index, usually a {@link PendingPalette} that has been loaded.
+     *
+     * @param index
+     *         The index of the palette to replace.
+     * @param palette
+     *         The new {@link Palette}.
+     */
+    public void setPalette(int index, Palette palette)
+    {
+        mPalettes[index] = palette;
+        mPrefetchedPosition = -1;
+        if (mAtlas != null)
+        {
+            mAtlas.setPalettes(mPalettes);
+        }
+        updateSwatchPool();
+        notifyDataSetChanged();
+    }
+
+
+    /**
+     * Returns the position of the given palette in the middle copy of the palettes. That's where the pager should start.
+     *
+     * @param index
+     *         The index of a palette.
+     *
+     * @return The position of the palette page.
+     */
+    public int centerPosition(int index)
+    {
+        return mPalettes.length > 1 ? mPalettes.length * (CYCLES / 2) + index : index;
+    }
+
+
+    /**
+     * Move the given pager to the page in the middle copy of the palettes that shows the same palette as the current page. The pages look exactly the same,
+     * so the user won't notice. Call this when the pager is idle.
+     *
+     * @param pager
+     *         The {@link ViewPager} that uses this adapter.
+     */
+    public void recenter(ViewPager pager)
+    {
+        int current = pager.getCurrentItem();
+        if (mPalettes.length > 1 && current / mPalettes.length != CYCLES / 2)
+        {
+            pager.setCurrentItem(centerPosition(mapPosition(current)), false);
+        }
+    }
+
+
+    @NonNull
+    @Override
+    public Object instantiateItem(@NonNull ViewGroup container, int position)
+    {
+        long start = ColorPickerTrace.begin(ColorPickerTrace.PAGE_INSTANTIATE);
+        try
+        {
+            int index = mapPosition(position);
+            Page page = recycledPage(mRecyclerPages);
+            if (page == null)
+            {
+                long inflateStart = ColorPickerTrace.begin(ColorPickerTrace.PAGE_INFLATE);
+                try
+                {
+                    page = mRecyclerPages ? new RecyclerPage(container) : new PaletteViewPage(container);
+                }
+                finally
+                {
+                    ColorPickerTrace.end(ColorPickerTrace.PAGE_INFLATE, inflateStart);
+                }
+            }
+            page.bind(index, mPalettes[index], selectedIndex(index));
+            page.mPosition = position;
+            container.addView(page.mView);
+            mActivePages.add(page);
+            return page;
+        }
+        finally
+        {
+            ColorPickerTrace.end(ColorPickerTrace.PAGE_INSTANTIATE, start);
+        }
+    }
+
+
+    @Override
+    public void destroyItem(@NonNull ViewGroup container, int position, @NonNull Object object)
+    {
+        Page page = (Page) object;
+        container.removeView(page.mView);
+        mActivePages.remove(page);
+        page.unbind();
+        if (mRecycledPages.size() < 2 * MAX_RECYCLED_PAGES)
+        {
+            mRecycledPages.add(page);
+        }
+    }
+
+
     @Override
-    public Fragment getItem(int position)
+    public boolean isViewFromObject(@NonNull View view, @NonNull Object object)
     {
-        PaletteFragment fragment = new PaletteFragment();
-        fragment.setPalette(mPalettes[mapPosition(position)]);
-        return fragment;
+        return ((Page) object).mView == view;
     }
 
 
@@ -80,7 +388,23 @@ public final class PalettesPagerAdapter extends FragmentStatePagerAdapter implem
     @Override
     public int getCount()
     {
-        return mPalettes.length > 1 ? mPalettes.length * FACTOR : 1;
+        return mPalettes.length > 1 ? mPalettes.length * CYCLES : mPalettes.length;
+    }
+
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see android.support.v4.view.PagerAdapter#getItemPosition(java.lang.Object)
+     */
+    @Override
+    public int getItemPosition(@NonNull Object object)
+    {
+        // recreate pages of palettes that have been replaced, moved or removed and pages which position maps to another palette after the number of
+        // palettes has changed
+        Page page = (Page) object;
+        return page.mPosition < getCount() && mapPosition(page.mPosition) == page.mIndex && mPalettes[page.mIndex] == page.mPalette
+                ? POSITION_UNCHANGED : POSITION_NONE;
     }
 
 
@@ -92,7 +416,8 @@ public final class PalettesPagerAdapter extends FragmentStatePagerAdapter implem
     @Override
     public CharSequence getPageTitle(int position)
     {
-        return mPalettes[mapPosition(position)].name();
+        Palette palette = mPalettes[mapPosition(position)];
+        return palette instanceof PendingPalette ? mResources.getString(R.string.org_dmfs_colorpicker_loading) : palette.name();
     }
 
 
@@ -104,42 +429,80 @@ public final class PalettesPagerAdapter extends FragmentStatePagerAdapter implem
      *
      * @return The actual position.
      */
-    private int mapPosition(int position)
+    int mapPosition(int position)
     {
-        return position % mPalettes.length;
+        // positions next to the first page may be negative
+        return (position % mPalettes.length + mPalettes.length) % mPalettes.length;
     }
 
 
-    @Override
-    public Drawable getDrawableTitle(int position)
+    private int selectedIndex(int index)
     {
-        return mCache.get(mapPosition(position));
+        return index == mSelectedPalette ? mSelectedColor : -1;
     }
 
 
     /**
-     * A cache for palette preview images.
+     * Returns a recycled page of the given type or <code>null</code> if there is none.
      */
-    private final class PreviewCache extends LruCache<Integer, Drawable>
+    private Page recycledPage(boolean recyclerPage)
     {
+        for (int i = mRecycledPages.size() - 1; i >= 0; --i)
+        {
+            if (mRecycledPages.get(i) instanceof RecyclerPage == recyclerPage)
+            {
+                return mRecycledPages.remove(i);
+            }
+        }
+        return null;
+    }
+
 
-        public PreviewCache(int maxSize)
+    @Override
+    public Drawable getDrawableTitle(int position)
+    {
+        return mAtlas != null ? mAtlas.drawable(mapPosition(position)) : mCache.preview(mPalettes[mapPosition(position)]);
+    }
+
+
+    @Override
+    public void setPrimaryItem(@NonNull ViewGroup container, int position, @NonNull Object object)
+    {
+        super.setPrimaryItem(container, position, object);
+        if (mAtlas == null && mPalettes.length > 0 && position != mPrefetchedPosition)
         {
-            super(maxSize);
+            mPrefetchedPosition = position;
+            // start rendering the previews the tab strip will show next, closest first
+            mCache.preview(mPalettes[mapPosition(position)]);
+            for (int i = 1; i <= PREFETCH_DISTANCE; ++i)
+            {
+                mCache.preview(mPalettes[mapPosition(position + i)]);
+                mCache.preview(mPalettes[mapPosition(position - i)]);
+            }
         }
+    }
 
 
-        @Override
-        protected Drawable create(Integer key)
+    /**
+     * Draw a preview of the given palette.
+     *
+     * @param canvas
+     *         The {@link Canvas} to draw on, the preview is drawn at the origin.
+     * @param palette
+     *         The {@link Palette}.
+     * @param size
+     *         The width and height of the preview in pixels.
+     * @param density
+     *         The display density.
+     */
+    static void drawPreview(Canvas canvas, Palette palette, int size, float density)
+    {
+        long start = ColorPickerTrace.begin(ColorPickerTrace.PREVIEW_RENDER);
+        try
         {
-            Palette palette = mPalettes[key];
-            final int size = (int) (PREVIEW_SIZE * mDensity);
             final int cols = palette.numberOfColumns();
 
-            Bitmap preview = Bitmap.createBitmap(size, size, Config.ARGB_8888);
-            Canvas canvas = new Canvas(preview);
-
-            final float spacing = 1.2f * mDensity;
+            final float spacing = 1.2f * density;
             final float halfSpacing = spacing / 2;
             final float grid = (size + spacing) / cols;
             final float radius = (grid - spacing) / 2;
@@ -151,12 +514,303 @@ public final class PalettesPagerAdapter extends FragmentStatePagerAdapter implem
                 for (int i = 0, l = cols; i < l; ++i)
                 {
                     paint.setColor(palette.colorAt(j * cols + i) | 0xff000000);
-                    // canvas.drawRect(i * grid, j * grid, (i + 1) * grid - spacing, (j + 1) * grid - spacing, paint);
                     canvas.drawCircle((i + 0.5f) * grid - halfSpacing, (j + 0.5f) * grid - halfSpacing, radius, paint);
                 }
             }
+        }
+        finally
+        {
+            ColorPickerTrace.end(ColorPickerTrace.PREVIEW_RENDER, start);
+        }
+    }
+
+
+    /**
+     * Listener interface for picked colors.
+     */
+    public interface OnColorSelectedListener
+    {
+        void onColorSelected(int color, String paletteId, String colorName, String paletteName);
+    }
+
+
+    /**
+     * A page of the pager. The view of a page is reused for other palettes once the page has been destroyed.
+     */
+    private abstract class Page
+    {
+        final View mView;
+        Palette mPalette;
+        int mIndex = -1;
+        /**
+         * The position of the page in the pager.
+         */
+        int mPosition = -1;
+
+
+        Page(View view)
+        {
+            mView = view;
+        }
+
+
+        void bind(int index, Palette palette, int selectedIndex)
+        {
+            mIndex = index;
+            mPalette = palette;
+        }
+
+
+        void unbind()
+        {
+            mPalette = null;
+            mIndex = -1;
+            mPosition = -1;
+        }
+
+
+        abstract void setSelectedIndex(int selectedIndex);
+
+
+        void onColorClicked(int position)
+        {
+            Palette palette = mPalette;
+            if (palette != null && mListener != null)
+            {
+                mListener.onColorSelected(palette.colorAt(position), palette.id(), palette.nameOfColorAt(position), palette.name());
+            }
+        }
+    }
+
+
+    /**
+     * A page that shows the palette in a {@link PaletteView}.
+     */
+    private final class PaletteViewPage extends Page implements PaletteView.OnSwatchClickListener
+    {
+        private final PaletteView mPaletteView;
+
+
+        PaletteViewPage(ViewGroup container)
+        {
+            super(LayoutInflater.from(container.getContext()).inflate(R.layout.dmfs_colorpickerdialog_palette_grid, container, false));
+            mPaletteView = mView.findViewById(android.R.id.content);
+            mPaletteView.setOnSwatchClickListener(this);
+        }
+
+
+        @Override
+        void bind(int index, Palette palette, int selectedIndex)
+        {
+            super.bind(index, palette, selectedIndex);
+            mPaletteView.setPalette(palette);
+            mPaletteView.setSelectedIndex(selectedIndex);
+        }
+
+
+        @Override
+        void setSelectedIndex(int selectedIndex)
+        {
+            mPaletteView.setSelectedIndex(selectedIndex);
+        }
+
+
+        @Override
+        public void onSwatchClick(PaletteView view, int index)
+        {
+            onColorClicked(index);
+        }
+    }
 
-            return new BitmapDrawable(mResources, preview);
+
+    /**
+     * A page that shows the palette in a {@link RecyclerView} that takes its swatch views from the pool shared by all pages.
+     */
+    private final class RecyclerPage extends Page implements PaletteRecyclerAdapter.OnSwatchClickListener
+    {
+        private final RecyclerView mRecyclerView;
+        private final GridLayoutManager mLayoutManager;
+        /**
+         * The adapter of this page, which is created on the first bind and then reused for every palette.
+         */
+        private PaletteRecyclerAdapter mAdapter;
+
+
+        RecyclerPage(ViewGroup container)
+        {
+            super(LayoutInflater.from(container.getContext()).inflate(R.layout.dmfs_colorpickerdialog_palette_recycler, container, false));
+            mRecyclerView = mView.findViewById(android.R.id.content);
+            mRecyclerView.setRecycledViewPool(mSwatchPool);
+            mLayoutManager = new GridLayoutManager(container.getContext(), 1);
+            // return the swatches to the shared pool when the page is detached
+            mLayoutManager.setRecycleChildrenOnDetach(true);
+            mRecyclerView.setLayoutManager(mLayoutManager);
+            mRecyclerView.addItemDecoration(new PaletteRecyclerAdapter.SpacingDecoration((int) (SPACING * mDensity)));
+            mRecyclerView.setHasFixedSize(true);
+        }
+
+
+        @Override
+        void bind(int index, Palette palette, int selectedIndex)
+        {
+            super.bind(index, palette, selectedIndex);
+            if (mAdapter == null)
+            {
+                mAdapter = new PaletteRecyclerAdapter(palette, this);
+                mRecyclerView.setAdapter(mAdapter);
+            }
+            else
+            {
+                // keep the adapter, so the swatches of the previous palette are rebound in place
+                mAdapter.setPalette(palette);
+            }
+            mAdapter.setSelectedPosition(selectedIndex);
+            mLayoutManager.setSpanCount(mAdapter.getNumColumns());
+            mRecyclerView.scrollToPosition(Math.max(0, selectedIndex));
+        }
+
+
+        @Override
+        void setSelectedIndex(int selectedIndex)
+        {
+            // the adapter is kept when the page is unbound, it only shows the palette of a bound page
+            if (mPalette != null)
+            {
+                mAdapter.setSelectedPosition(selectedIndex);
+                if (selectedIndex >= 0)
+                {
+                    mRecyclerView.scrollToPosition(selectedIndex);
+                }
+            }
+        }
+
+
+        @Override
+        public void onSwatchClick(int position)
+        {
+            onColorClicked(position);
+        }
+    }
+
+
+    /**
+     * A cache for palette preview images. The size of the cache is measured in bytes. Previews are rendered in the background, a cache miss returns a
+     * transparent {@link PreviewDrawable} that shows the preview as soon as it's ready.
+     * <p>
+     * Previews are cached by palette instance, so a lookup never needs to look at the colors of a palette. That's left to the render thread.
+     */
+    private final class PreviewCache extends LruCache<PaletteKey, PreviewDrawable>
+    {
+        private final PreviewDrawable mPendingPreview = new PreviewDrawable(mPreviewSize);
+        /**
+         * The key to look up previews, so a cache hit doesn't allocate anything. Lookups only happen on the main thread.
+         */
+        private final PaletteKey mLookupKey = new PaletteKey(null);
+
+
+        public PreviewCache(int maxBytes)
+        {
+            super(maxBytes);
+        }
+
+
+        /**
+         * Returns the preview of the given palette. Previews are cached by instance, so they survive reordering palettes.
+         */
+        PreviewDrawable preview(Palette palette)
+        {
+            if (palette instanceof PendingPalette)
+            {
+                // placeholders are empty, they all look the same
+                return mPendingPreview;
+            }
+            PaletteKey lookupKey = mLookupKey;
+            lookupKey.mPalette = palette;
+            PreviewDrawable drawable = get(lookupKey);
+            // don't keep the palette alive
+            lookupKey.mPalette = null;
+            if (drawable == null)
+            {
+                drawable = render(palette);
+                // the cache keeps its keys, so only a miss takes a new one
+                put(new PaletteKey(palette), drawable);
+            }
+            return drawable;
+        }
+
+
+        private PreviewDrawable render(final Palette palette)
+        {
+            final PreviewDrawable drawable = new PreviewDrawable(mPreviewSize);
+            final PreviewDiskCache diskCache = mDiskCache;
+            PREVIEW_EXECUTOR.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Bitmap cached = diskCache == null ? null : diskCache.get(palette, mPreviewSize, mDensity);
+                    boolean rendered = cached == null;
+                    if (rendered)
+                    {
+                        cached = Bitmap.createBitmap(mPreviewSize, mPreviewSize, Config.ARGB_8888);
+                        drawPreview(new Canvas(cached), palette, mPreviewSize, mDensity);
+                    }
+                    final Bitmap preview = cached;
+                    mHandler.post(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            drawable.setPreview(preview, new Rect(0, 0, mPreviewSize, mPreviewSize));
+                        }
+                    });
+                    if (rendered && diskCache != null)
+                    {
+                        // store the preview after it has been posted, the main thread only reads it
+                        diskCache.put(palette, mDensity, preview, 0, 0, mPreviewSize);
+                    }
+                }
+            });
+            return drawable;
+        }
+
+
+        @Override
+        protected int sizeOf(PaletteKey key, PreviewDrawable value)
+        {
+            // count the bitmap even if it's not there yet, it will be soon
+            return mPreviewSize * mPreviewSize * 4;
+        }
+    }
+
+
+    /**
+     * A cache key that identifies a {@link Palette} by instance. {@link Palette#equals(Object)} compares the content, which may require loading all colors.
+     * <p>
+     * Keys in the cache are never changed, only the lookup key of the {@link PreviewCache} is reused for other palettes.
+     */
+    private final static class PaletteKey
+    {
+        private Palette mPalette;
+
+
+        PaletteKey(Palette palette)
+        {
+            mPalette = palette;
+        }
+
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof PaletteKey && ((PaletteKey) obj).mPalette == mPalette;
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(mPalette);
         }
     }
 }
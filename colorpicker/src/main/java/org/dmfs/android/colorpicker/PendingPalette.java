@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import org.dmfs.android.colorpicker.palettes.Palette;
+
+
+/**
+ * An empty placeholder for a {@link Palette} that's still being loaded by the {@link ColorPickerDialogFragment}.
+ * <p>
+ * Placeholders have no content to compare, each instance stands for a different palette, so they are only equal to themselves.
+ *
+ * @author Marten Gajda
+ */
+final class PendingPalette implements Palette
+{
+    public static final Parcelable.Creator<PendingPalette> CREATOR = new Parcelable.Creator<PendingPalette>()
+    {
+        @Override
+        public PendingPalette createFromParcel(Parcel in)
+        {
+            return new PendingPalette();
+        }
+
+
+        @Override
+        public PendingPalette[] newArray(int size)
+        {
+            return new PendingPalette[size];
+        }
+    };
+
+
+    @Override
+    public String name()
+    {
+        return null;
+    }
+
+
+    @Override
+    public String id()
+    {
+        return null;
+    }
+
+
+    @Override
+    public int numberOfColors()
+    {
+        return 0;
+    }
+
+
+    @Override
+    public int colorAt(int index)
+    {
+        throw new ArrayIndexOutOfBoundsException(index);
+    }
+
+
+    @Override
+    public String nameOfColorAt(int index)
+    {
+        throw new ArrayIndexOutOfBoundsException(index);
+    }
+
+
+    @Override
+    public int numberOfColumns()
+    {
+        return 1;
+    }
+
+
+    @Override
+    public int describeContents()
+    {
+        return 0;
+    }
+
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags)
+    {
+        // nothing to write
+    }
+}
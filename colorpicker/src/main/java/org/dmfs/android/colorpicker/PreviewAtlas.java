@@ -0,0 +1,306 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.dmfs.android.colorpicker.palettes.Palette;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * Renders the previews of all palettes into a single {@link Bitmap}. Each preview is a {@link PreviewDrawable} that draws its cell of the atlas, so there is
+ * only one bitmap to allocate and upload, no matter how many palettes there are.
+ * <p>
+ * Rendering happens in the background. When palettes are replaced, only the cells of the palettes that changed are rendered again, as long as the atlas is
+ * large enough and not being rendered. All methods must be called on the main thread.
+ * <p>
+ * The atlas is never larger than {@link #MAX_SIZE} pixels in each dimension, so it always fits into a texture. Use {@link #fits(int, int)} to check
+ * whether an atlas can hold all previews.
+ *
+ * @author Marten Gajda
+ */
+final class PreviewAtlas
+{
+    /**
+     * The maximum width and height of the atlas in pixels. That's the smallest maximum texture size of devices with hardware acceleration.
+     */
+    private final static int MAX_SIZE = 2048;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Executor mExecutor;
+    private final PreviewDiskCache mDiskCache;
+    private final int mPreviewSize;
+    private final float mDensity;
+    private final Rect mCell = new Rect();
+    private final Paint mCopyPaint = new Paint();
+
+    /**
+     * The palettes, the atlas has been or is being rendered for.
+     */
+    private Palette[] mPalettes = new Palette[0];
+    private PreviewDrawable[] mDrawables = new PreviewDrawable[0];
+    /**
+     * The atlas or <code>null</code> if it's not ready yet.
+     */
+    private Bitmap mBitmap;
+    /**
+     * The number of cells per row and column of the atlas.
+     */
+    private int mColumns;
+    /**
+     * The number of the latest full rendering, used to drop results that are outdated.
+     */
+    private int mGeneration;
+    /**
+     * The number of the latest full rendering that has been completed.
+     */
+    private int mRenderedGeneration;
+
+
+    /**
+     * Creates an empty atlas.
+     *
+     * @param executor
+     *         The {@link Executor} to render previews on.
+     * @param diskCache
+     *         A {@link PreviewDiskCache} to load previews from or <code>null</code> to render all previews.
+     * @param previewSize
+     *         The width and height of a preview in pixels.
+     * @param density
+     *         The display density.
+     */
+    PreviewAtlas(@NonNull Executor executor, @Nullable PreviewDiskCache diskCache, int previewSize, float density)
+    {
+        mExecutor = executor;
+        mDiskCache = diskCache;
+        mPreviewSize = previewSize;
+        mDensity = density;
+        mCopyPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+    }
+
+
+    /**
+     * Returns whether an atlas can hold the previews of the given number of palettes.
+     *
+     * @param count
+     *         The number of palettes.
+     * @param previewSize
+     *         The width and height of a preview in pixels.
+     *
+     * @return <code>true</code> if the atlas would not exceed {@link #MAX_SIZE}.
+     */
+    static boolean fits(int count, int previewSize)
+    {
+        return columns(count) * previewSize <= MAX_SIZE;
+    }
+
+
+    /**
+     * Set the palettes to render. Previews of palettes that were already present at the same index are kept, all others are rendered again. Palettes are
+     * compared by instance, so this doesn't need to look at any colors.
+     *
+     * @param palettes
+     *         The {@link Palette}s.
+     */
+    void setPalettes(@NonNull Palette[] palettes)
+    {
+        Palette[] previous = mPalettes;
+        PreviewDrawable[] drawables = new PreviewDrawable[palettes.length];
+        mPalettes = palettes.clone();
+
+        if (mBitmap == null || mRenderedGeneration != mGeneration || palettes.length > mColumns * mColumns)
+        {
+            // the atlas is not ready, still being rendered or too small, render everything
+            for (int i = 0; i < palettes.length; ++i)
+            {
+                drawables[i] = new PreviewDrawable(mPreviewSize);
+            }
+            mDrawables = drawables;
+            renderAll();
+            return;
+        }
+
+        for (int i = 0; i < palettes.length; ++i)
+        {
+            if (i < previous.length && previous[i] == palettes[i])
+            {
+                drawables[i] = mDrawables[i];
+            }
+            else
+            {
+                drawables[i] = new PreviewDrawable(mPreviewSize);
+                renderCell(i, palettes[i]);
+            }
+        }
+        mDrawables = drawables;
+    }
+
+
+    /**
+     * Returns the preview of the palette at the given index. The preview may still be empty, in which case it's updated as soon as it has been rendered.
+     *
+     * @param index
+     *         The index of the palette.
+     *
+     * @return A {@link PreviewDrawable}.
+     */
+    PreviewDrawable drawable(int index)
+    {
+        return mDrawables[index];
+    }
+
+
+    private void renderAll()
+    {
+        final int generation = ++mGeneration;
+        final Palette[] palettes = mPalettes;
+        final int columns = columns(palettes.length);
+        mExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                long start = ColorPickerTrace.begin(ColorPickerTrace.PREVIEW_RENDER_ATLAS);
+                final Bitmap atlas = Bitmap.createBitmap(columns * mPreviewSize, columns * mPreviewSize, Bitmap.Config.ARGB_8888);
+                try
+                {
+                    Canvas canvas = new Canvas(atlas);
+                    for (int i = 0; i < palettes.length; ++i)
+                    {
+                        int left = i % columns * mPreviewSize;
+                        int top = i / columns * mPreviewSize;
+                        Bitmap cached = mDiskCache == null ? null : mDiskCache.get(palettes[i], mPreviewSize, mDensity);
+                        if (cached != null)
+                        {
+                            canvas.drawBitmap(cached, left, top, null);
+                            cached.recycle();
+                            continue;
+                        }
+                        canvas.save();
+                        canvas.translate(left, top);
+                        canvas.clipRect(0, 0, mPreviewSize, mPreviewSize);
+                        PalettesPagerAdapter.drawPreview(canvas, palettes[i], mPreviewSize, mDensity);
+                        canvas.restore();
+                        if (mDiskCache != null)
+                        {
+                            // the atlas has not been published yet, so it's safe to read the cell from it
+                            mDiskCache.put(palettes[i], mDensity, atlas, left, top, mPreviewSize);
+                        }
+                    }
+                }
+                finally
+                {
+                    ColorPickerTrace.end(ColorPickerTrace.PREVIEW_RENDER_ATLAS, start);
+                }
+                mHandler.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (generation != mGeneration)
+                        {
+                            // the palettes have been replaced in the meantime
+                            atlas.recycle();
+                            return;
+                        }
+                        // the previous atlas might still be on screen, so we don't recycle it
+                        mBitmap = atlas;
+                        mColumns = columns;
+                        mRenderedGeneration = generation;
+                        for (int i = 0; i < mDrawables.length; ++i)
+                        {
+                            mDrawables[i].setPreview(atlas, cell(i));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+
+    private void renderCell(final int index, final Palette palette)
+    {
+        final int generation = mGeneration;
+        mExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                // render into a separate bitmap, the atlas may be drawn on the main thread at the same time
+                Bitmap cached = mDiskCache == null ? null : mDiskCache.get(palette, mPreviewSize, mDensity);
+                if (cached == null)
+                {
+                    cached = Bitmap.createBitmap(mPreviewSize, mPreviewSize, Bitmap.Config.ARGB_8888);
+                    PalettesPagerAdapter.drawPreview(new Canvas(cached), palette, mPreviewSize, mDensity);
+                    if (mDiskCache != null)
+                    {
+                        // this only copies the pixels, it has to happen before the main thread recycles the preview
+                        mDiskCache.put(palette, mDensity, cached, 0, 0, mPreviewSize);
+                    }
+                }
+                final Bitmap preview = cached;
+                mHandler.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (generation == mGeneration && index < mPalettes.length && mPalettes[index] == palette)
+                        {
+                            Rect cell = cell(index);
+                            new Canvas(mBitmap).drawBitmap(preview, cell.left, cell.top, mCopyPaint);
+                            mDrawables[index].setPreview(mBitmap, cell);
+                        }
+                        preview.recycle();
+                    }
+                });
+            }
+        });
+    }
+
+
+    /**
+     * Returns the number of cells per row and column of an atlas for the given number of palettes.
+     */
+    private static int columns(int count)
+    {
+        return Math.max(1, (int) Math.ceil(Math.sqrt(count)));
+    }
+
+
+    /**
+     * Returns the area of the cell with the given index. The result is only valid until the next call.
+     */
+    private Rect cell(int index)
+    {
+        int left = index % mColumns * mPreviewSize;
+        int top = index / mColumns * mPreviewSize;
+        mCell.set(left, top, left + mPreviewSize, top + mPreviewSize);
+        return mCell;
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import org.dmfs.android.colorpicker.palettes.Palette;
+import org.dmfs.android.colorpicker.palettes.PaletteFingerprint;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A cache of palette previews in the cache directory of the app. Previews are stored as raw ARGB pixels, so loading one is just a file read, no decoding and
+ * no drawing. Files are named after a fingerprint of the columns and colors of the palette, the size and density of the preview and the {@link #VERSION} of
+ * the rendering, so they can be reused across palettes with the same colors, dialogs, locales and process starts.
+ * <p>
+ * Reads are synchronous and should be done on a background thread. Writes take a copy of the pixels and are done on a private serial background executor, so
+ * storing a preview doesn't delay showing it. Files are written to a temporary file and renamed, so concurrent readers never see incomplete files. The size
+ * of the cache is limited by the number of previews, so it scales with the display density. When the cache holds more previews than its limit, the least
+ * recently used files are deleted.
+ *
+ * @author Marten Gajda
+ */
+final class PreviewDiskCache
+{
+    private final static String TAG = "PreviewDiskCache";
+
+    private final static String DIRECTORY = "org.dmfs.colorpicker.previews";
+
+    private final static String SUFFIX = ".argb";
+
+    /**
+     * The version of the previews, which is part of the file names. Increase this whenever the rendering of the previews changes, so previews of older
+     * versions are no longer used. They are never read again, so they are the first ones to be deleted when the cache is trimmed.
+     */
+    final static int VERSION = 1;
+
+    /**
+     * The default maximum number of previews in the cache. That's 512 KiB at mdpi and 8 MiB at xxxhdpi.
+     */
+    final static int DEFAULT_MAX_PREVIEWS = 128;
+
+    /**
+     * Writes are serialized, so we never trim the cache concurrently. The thread ends when there is nothing to write for a while.
+     */
+    private final static Executor WRITE_EXECUTOR = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+    private final File mDirectory;
+    private final int mMaxPreviews;
+
+
+    /**
+     * Creates a cache in the cache directory of the given {@link Context}.
+     *
+     * @param context
+     *         A {@link Context}.
+     * @param maxPreviews
+     *         The maximum number of previews in the cache.
+     */
+    PreviewDiskCache(@NonNull Context context, int maxPreviews)
+    {
+        mDirectory = new File(context.getCacheDir(), DIRECTORY);
+        mMaxPreviews = maxPreviews;
+    }
+
+
+    /**
+     * Returns the cached preview of the given palette or <code>null</code> if there is none. Don't call this on the main thread.
+     *
+     * @param palette
+     *         The {@link Palette}.
+     * @param size
+     *         The width and height of the preview in pixels.
+     * @param density
+     *         The display density.
+     *
+     * @return The preview {@link Bitmap} or <code>null</code>.
+     */
+    @Nullable
+    Bitmap get(@NonNull Palette palette, int size, float density)
+    {
+        if (palette instanceof PendingPalette)
+        {
+            // placeholders have no preview worth caching
+            return null;
+        }
+        long start = ColorPickerTrace.begin(ColorPickerTrace.PREVIEW_DISK_READ);
+        try
+        {
+            return read(file(palette, size, density), size);
+        }
+        finally
+        {
+            ColorPickerTrace.end(ColorPickerTrace.PREVIEW_DISK_READ, start);
+        }
+    }
+
+
+    private Bitmap read(File file, int size)
+    {
+        int bytes = size * size * 4;
+        if (file.length() != bytes)
+        {
+            // missing or not a valid preview
+            return null;
+        }
+
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(bytes);
+            FileInputStream in = new FileInputStream(file);
+            try
+            {
+                FileChannel channel = in.getChannel();
+                while (buffer.hasRemaining())
+                {
+                    if (channel.read(buffer) < 0)
+                    {
+                        // the file has been replaced or truncated while reading
+                        return null;
+                    }
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+            buffer.rewind();
+            int[] pixels = new int[size * size];
+            buffer.asIntBuffer().get(pixels);
+            Bitmap preview = Bitmap.createBitmap(pixels, size, size, Bitmap.Config.ARGB_8888);
+            // keep track of usage, so trim() deletes the least recently used previews first
+            file.setLastModified(System.currentTimeMillis());
+            return preview;
+        }
+        catch (IOException e)
+        {
+            // the file might have been deleted by trim(), that's just a cache miss
+            return null;
+        }
+    }
+
+
+    /**
+     * Store the preview of the given palette in the background. The pixels of the preview are copied from the given {@link Bitmap}, which may contain other
+     * previews as well, like an atlas. The {@link Bitmap} may be changed or recycled as soon as this returns. Previews of {@link PendingPalette}s are not
+     * stored.
+     *
+     * @param palette
+     *         The {@link Palette}.
+     * @param density
+     *         The display density.
+     * @param source
+     *         The {@link Bitmap} that contains the preview.
+     * @param left
+     *         The left edge of the preview in <code>source</code>.
+     * @param top
+     *         The top edge of the preview in <code>source</code>.
+     * @param size
+     *         The width and height of the preview in pixels.
+     */
+    void put(@NonNull Palette palette, float density, @NonNull Bitmap source, int left, int top, int size)
+    {
+        if (palette instanceof PendingPalette)
+        {
+            return;
+        }
+        final File file = file(palette, size, density);
+        final int[] pixels = new int[size * size];
+        source.getPixels(pixels, 0, size, left, top, size, size);
+        WRITE_EXECUTOR.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                write(file, pixels);
+                trim();
+            }
+        });
+    }
+
+
+    private void write(File file, int[] pixels)
+    {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs())
+        {
+            return;
+        }
+
+        File temp = null;
+        try
+        {
+            temp = File.createTempFile("preview", ".tmp", mDirectory);
+            ByteBuffer buffer = ByteBuffer.allocate(pixels.length * 4);
+            buffer.asIntBuffer().put(pixels);
+            FileOutputStream out = new FileOutputStream(temp);
+            try
+            {
+                out.write(buffer.array());
+            }
+            finally
+            {
+                out.close();
+            }
+            // renaming is atomic, readers see either the complete file or none
+            if (!temp.renameTo(file))
+            {
+                temp.delete();
+            }
+        }
+        catch (IOException e)
+        {
+            Log.w(TAG, "Can't store preview", e);
+            if (temp != null)
+            {
+                temp.delete();
+            }
+        }
+    }
+
+
+    /**
+     * Delete the least recently used files until the cache fits into its limit.
+     */
+    void trim()
+    {
+        File[] files = mDirectory.listFiles();
+        if (files == null || files.length <= mMaxPreviews)
+        {
+            return;
+        }
+
+        final long[] lastModified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; ++i)
+        {
+            // get the timestamps once, they may change while we sort
+            lastModified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer lhs, Integer rhs)
+            {
+                return lastModified[lhs] < lastModified[rhs] ? -1 : lastModified[lhs] == lastModified[rhs] ? 0 : 1;
+            }
+        });
+        int remaining = files.length;
+        for (int i = 0; i < order.length && remaining > mMaxPreviews; ++i)
+        {
+            if (files[order[i]].delete())
+            {
+                --remaining;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the file of the preview of the given palette with the given size and density.
+     */
+    File file(Palette palette, int size, float density)
+    {
+        return new File(mDirectory, String.format(Locale.US, "v%d-%016x-%d-%d%s", VERSION, PaletteFingerprint.ofColors(palette), size, (int) (density * 160),
+                SUFFIX));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+
+
+/**
+ * A {@link Drawable} of a palette preview that may not have been rendered yet. It has a fixed intrinsic size and stays transparent until the preview
+ * {@link Bitmap} has been set, so the view showing it doesn't need a new layout when the preview arrives.
+ *
+ * @author Marten Gajda
+ */
+final class PreviewDrawable extends Drawable
+{
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect mSource = new Rect();
+    private final int mSize;
+    private Bitmap mBitmap;
+
+
+    /**
+     * Creates an empty preview.
+     *
+     * @param size
+     *         The intrinsic width and height in pixels.
+     */
+    PreviewDrawable(int size)
+    {
+        mSize = size;
+    }
+
+
+    /**
+     * Set the preview to draw. This must be called on the main thread.
+     *
+     * @param bitmap
+     *         The {@link Bitmap} that contains the preview.
+     * @param source
+     *         The area of the {@link Bitmap} that contains the preview.
+     */
+    void setPreview(@NonNull Bitmap bitmap, @NonNull Rect source)
+    {
+        mBitmap = bitmap;
+        mSource.set(source);
+        invalidateSelf();
+    }
+
+
+    /**
+     * Returns whether the preview has been set.
+     */
+    boolean isReady()
+    {
+        return mBitmap != null;
+    }
+
+
+    @Override
+    public void draw(@NonNull Canvas canvas)
+    {
+        if (mBitmap != null)
+        {
+            canvas.drawBitmap(mBitmap, mSource, getBounds(), mPaint);
+        }
+    }
+
+
+    @Override
+    public int getIntrinsicWidth()
+    {
+        return mSize;
+    }
+
+
+    @Override
+    public int getIntrinsicHeight()
+    {
+        return mSize;
+    }
+
+
+    @Override
+    public void setAlpha(int alpha)
+    {
+        mPaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter)
+    {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+
+    @Override
+    public int getOpacity()
+    {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
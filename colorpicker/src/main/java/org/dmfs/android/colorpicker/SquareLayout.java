@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.widget.FrameLayout;
+
+
+/**
+ * A {@link FrameLayout} that's always square. It takes the largest square that fits the available space, so with an unspecified height it's as high as it's
+ * wide. The geometry is determined in a single measure pass, children are measured only once with the final size.
+ *
+ * @author Marten Gajda
+ */
+public final class SquareLayout extends FrameLayout
+{
+    public SquareLayout(Context context)
+    {
+        super(context);
+    }
+
+
+    public SquareLayout(Context context, AttributeSet attrs)
+    {
+        super(context, attrs);
+    }
+
+
+    public SquareLayout(Context context, AttributeSet attrs, int defStyleAttr)
+    {
+        super(context, attrs, defStyleAttr);
+    }
+
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
+    {
+        int side = squareSize(widthMeasureSpec, heightMeasureSpec, Math.max(getSuggestedMinimumWidth(), getSuggestedMinimumHeight()));
+        int spec = MeasureSpec.makeMeasureSpec(side, MeasureSpec.EXACTLY);
+        super.onMeasure(spec, spec);
+    }
+
+
+    /**
+     * Returns the side of the largest square that fits the given measure specs.
+     *
+     * @param widthMeasureSpec
+     *         The width measure spec.
+     * @param heightMeasureSpec
+     *         The height measure spec.
+     * @param defaultSize
+     *         The size to return if neither dimension is constrained.
+     *
+     * @return The side of the square.
+     */
+    static int squareSize(int widthMeasureSpec, int heightMeasureSpec, int defaultSize)
+    {
+        boolean widthUnspecified = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED;
+        boolean heightUnspecified = MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.UNSPECIFIED;
+        if (widthUnspecified && heightUnspecified)
+        {
+            return defaultSize;
+        }
+        if (widthUnspecified)
+        {
+            return MeasureSpec.getSize(heightMeasureSpec);
+        }
+        if (heightUnspecified)
+        {
+            return MeasureSpec.getSize(widthMeasureSpec);
+        }
+        return Math.min(MeasureSpec.getSize(widthMeasureSpec), MeasureSpec.getSize(heightMeasureSpec));
+    }
+}
@@ -1,56 +0,0 @@
-/*
- * Copyright 2017 dmfs GmbH
- *
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package org.dmfs.android.colorpicker;
-
-import android.content.Context;
-import android.util.AttributeSet;
-import android.view.View;
-
-
-/**
- * A view that's always square. It uses the current width to set its height.
- *
- * @author Marten Gajda
- */
-public final class SquareView extends View
-{
-    public SquareView(Context context)
-    {
-        super(context);
-    }
-
-
-    public SquareView(Context context, AttributeSet attrs)
-    {
-        super(context, attrs);
-    }
-
-
-    public SquareView(Context context, AttributeSet attrs, int defStyleAttr)
-    {
-        super(context, attrs, defStyleAttr);
-    }
-
-
-    @Override
-    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec)
-    {
-        final int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
-        setMeasuredDimension(width, width);
-    }
-}
@@ -19,6 +19,7 @@ package org.dmfs.android.colorpicker;
 
 import android.content.Context;
 import android.util.AttributeSet;
+import android.view.View;
 
 import org.dmfs.android.view.ViewPager;
 
@@ -45,26 +46,56 @@ public final class SquareViewPager extends ViewPager
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec)
     {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        long start = ColorPickerTrace.begin(ColorPickerTrace.PAGER_MEASURE);
+        try
+        {
+            measureSquare(widthMeasureSpec, heightMeasureSpec);
+        }
+        finally
+        {
+            ColorPickerTrace.end(ColorPickerTrace.PAGER_MEASURE, start);
+        }
+    }
+
 
-        if (getChildCount() <= 1)
+    private void measureSquare(int widthMeasureSpec, int heightMeasureSpec)
+    {
+        if (getChildCount() == 0 || MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED)
         {
-            // only the pagetitlestrip is present, nothing to do.
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
             return;
         }
 
-        int titleStripHeight = getChildAt(0).getMeasuredHeight();
+        int width = MeasureSpec.getSize(widthMeasureSpec);
 
-        int width = getMeasuredWidth();
+        // ViewPager measures the title strip itself, so we don't measure it up front, we assume it has the height of the previous pass. Only if that's
+        // wrong, which usually happens in the first pass only, the pager is measured again.
+        View titleStrip = getChildAt(0);
+        int titleStripHeight = height(titleStrip);
+        measurePager(width, heightMeasureSpec, titleStripHeight);
+        if (height(titleStrip) != titleStripHeight)
+        {
+            measurePager(width, heightMeasureSpec, height(titleStrip));
+        }
+    }
 
-        if (MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.AT_MOST)
+
+    private void measurePager(int width, int heightMeasureSpec, int titleStripHeight)
+    {
+        // the pages are square, unless there is not enough space for that
+        int contentHeight = width;
+        if (MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.UNSPECIFIED)
         {
-            widthMeasureSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+            contentHeight = Math.max(0, Math.min(width, MeasureSpec.getSize(heightMeasureSpec) - titleStripHeight));
         }
 
-        // the new height is the height of the PagerTitleStrip + the width of the content.
-        heightMeasureSpec = MeasureSpec.makeMeasureSpec(titleStripHeight + width, MeasureSpec.EXACTLY);
+        super.onMeasure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(titleStripHeight + contentHeight, MeasureSpec.EXACTLY));
+    }
+
 
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    private static int height(View view)
+    {
+        return view.getVisibility() == GONE ? 0 : view.getMeasuredHeight();
     }
 }
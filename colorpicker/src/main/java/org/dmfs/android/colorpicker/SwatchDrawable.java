@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
+
+
+/**
+ * A {@link Drawable} of a color swatch, a colored circle with an optional contrasting ring that marks the selected color. The color and the selection can be
+ * changed at any time, so recycled views can reuse the same instance without allocating anything.
+ *
+ * @author Marten Gajda
+ */
+final class SwatchDrawable extends Drawable
+{
+    private final Paint mFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mRingPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float mRingWidth;
+    private boolean mSelected;
+
+
+    /**
+     * Creates a swatch.
+     *
+     * @param ringWidth
+     *         The width of the ring around the selected color in pixels.
+     */
+    SwatchDrawable(float ringWidth)
+    {
+        mRingWidth = ringWidth;
+        mRingPaint.setStyle(Paint.Style.STROKE);
+        mRingPaint.setStrokeWidth(ringWidth);
+        // the fill color is initially black, so the ring must be white
+        mRingPaint.setColor(0xffffffff);
+    }
+
+
+    /**
+     * Set the color of the swatch.
+     *
+     * @param color
+     *         The color.
+     */
+    void setColor(int color)
+    {
+        if (mFillPaint.getColor() != color)
+        {
+            mFillPaint.setColor(color);
+            mRingPaint.setColor(isLight(color) ? 0xff000000 : 0xffffffff);
+            invalidateSelf();
+        }
+    }
+
+
+    /**
+     * Set whether the swatch shows the selection ring.
+     *
+     * @param selected
+     *         <code>true</code> to show the selection ring.
+     */
+    void setSelected(boolean selected)
+    {
+        if (mSelected != selected)
+        {
+            mSelected = selected;
+            invalidateSelf();
+        }
+    }
+
+
+    @Override
+    public void draw(@NonNull Canvas canvas)
+    {
+        Rect bounds = getBounds();
+        float cx = bounds.exactCenterX();
+        float cy = bounds.exactCenterY();
+        float radius = Math.min(bounds.width(), bounds.height()) / 2f;
+        canvas.drawCircle(cx, cy, radius, mFillPaint);
+        if (mSelected)
+        {
+            // draw a ring with a contrasting color inside of the selected color
+            canvas.drawCircle(cx, cy, radius - mRingWidth * 2, mRingPaint);
+        }
+    }
+
+
+    @Override
+    public void setAlpha(int alpha)
+    {
+        mFillPaint.setAlpha(alpha);
+        mRingPaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter)
+    {
+        mFillPaint.setColorFilter(colorFilter);
+        mRingPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+
+    @Override
+    public int getOpacity()
+    {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+
+    /**
+     * Returns whether the given color is perceived as a light color.
+     */
+    private static boolean isLight(int color)
+    {
+        int luma = ((color >> 16) & 0xff) * 299 + ((color >> 8) & 0xff) * 587 + (color & 0xff) * 114;
+        return luma > 160 * 1000;
+    }
+}
@@ -68,6 +68,7 @@ public final class ArrayPalette implements Palette
      * The number of columns to use for the layout of this palette.
      */
     private final int mColumns;
+    private final PaletteFingerprint.Cache mFingerprint = new PaletteFingerprint.Cache();
 
 
     /**
@@ -324,6 +325,27 @@ public final class ArrayPalette implements Palette
     }
 
 
+    @Override
+    public long fingerprint()
+    {
+        return mFingerprint.of(this);
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return PaletteFingerprint.equals(this, obj);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return PaletteFingerprint.hashCode(this);
+    }
+
+
     @Override
     public int describeContents()
     {
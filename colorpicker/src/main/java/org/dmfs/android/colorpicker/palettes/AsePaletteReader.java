@@ -0,0 +1,268 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+
+/**
+ * Reads Adobe swatch exchange files (<code>.ase</code>) into {@link ArrayPalette}s.
+ * <p>
+ * Colors in the RGB, CMYK, Gray and LAB models are supported. CMYK colors are converted without a color profile and LAB colors are assumed to use the D50
+ * white point. Groups are flattened, their names are ignored.
+ * <p>
+ * The file is read in a single pass, no objects are created per color except for the color names.
+ *
+ * @author Marten Gajda
+ */
+public final class AsePaletteReader
+{
+    private final static int SIGNATURE = 0x41534546; // "ASEF"
+
+    private final static int BLOCK_GROUP_START = 0xc001;
+    private final static int BLOCK_GROUP_END = 0xc002;
+    private final static int BLOCK_COLOR = 0x0001;
+
+    private final static int MODEL_RGB = 0x52474220; // "RGB "
+    private final static int MODEL_CMYK = 0x434d594b; // "CMYK"
+    private final static int MODEL_GRAY = 0x47726179; // "Gray"
+    private final static int MODEL_LAB = 0x4c414220; // "LAB "
+
+    private final static int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * The D50 reference white used by Adobe for LAB colors.
+     */
+    private final static float D50_X = 0.96422f;
+    private final static float D50_Z = 0.82521f;
+
+
+    private AsePaletteReader()
+    {
+        // no instances
+    }
+
+
+    /**
+     * Read an Adobe swatch exchange file from an {@link InputStream}. The stream is not closed and no bytes beyond the end of the swatch data are consumed,
+     * so the stream can still be used afterwards. The data is read in small units, so pass a {@link BufferedInputStream} if reading from the
+     * stream is expensive.
+     *
+     * @param in
+     *         The {@link InputStream} to read from.
+     * @param id
+     *         The id of the palette.
+     * @param name
+     *         The name of the palette.
+     * @param columns
+     *         The number of columns or a value &lt;= 0 to use a square layout if possible.
+     *
+     * @return An {@link ArrayPalette}.
+     *
+     * @throws IOException
+     *         If the stream can't be read or doesn't contain a valid swatch exchange file.
+     */
+    public static ArrayPalette read(InputStream in, String id, String name, int columns) throws IOException
+    {
+        // no read-ahead, so the stream is positioned right after the swatch data when we're done
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != SIGNATURE)
+        {
+            throw new IOException("Not an Adobe swatch exchange file");
+        }
+        // skip the version
+        data.readInt();
+
+        PaletteBuilder builder = new PaletteBuilder();
+        char[] nameBuffer = new char[64];
+        int blocks = data.readInt();
+        for (int block = 0; block < blocks; ++block)
+        {
+            int type = data.readUnsignedShort();
+            int length = data.readInt();
+            if (length < 0)
+            {
+                throw new IOException("Invalid length of block " + block);
+            }
+
+            if (type != BLOCK_COLOR)
+            {
+                if (type != BLOCK_GROUP_START && type != BLOCK_GROUP_END)
+                {
+                    throw new IOException("Unknown type of block " + block);
+                }
+                skip(data, length);
+                continue;
+            }
+
+            // the name length is given in UTF-16 units including the terminating null
+            int nameLength = data.readUnsignedShort();
+            if (nameLength * 2 + 8 > length)
+            {
+                throw new IOException("Invalid name length in block " + block);
+            }
+            if (nameLength > nameBuffer.length)
+            {
+                nameBuffer = new char[Math.max(nameLength, nameBuffer.length * 2)];
+            }
+            for (int i = 0; i < nameLength; ++i)
+            {
+                nameBuffer[i] = data.readChar();
+            }
+            int end = nameLength;
+            while (end > 0 && nameBuffer[end - 1] == 0)
+            {
+                --end;
+            }
+            String colorName = end > 0 ? new String(nameBuffer, 0, end) : null;
+
+            int model = data.readInt();
+            int remaining = length - 2 - nameLength * 2 - 4;
+            int color;
+            switch (model)
+            {
+                case MODEL_RGB:
+                    color = 0xff000000 | (component(data.readFloat()) << 16) | (component(data.readFloat()) << 8) | component(data.readFloat());
+                    remaining -= 12;
+                    break;
+                case MODEL_CMYK:
+                    color = cmyk(data.readFloat(), data.readFloat(), data.readFloat(), data.readFloat());
+                    remaining -= 16;
+                    break;
+                case MODEL_GRAY:
+                    int gray = component(data.readFloat());
+                    color = 0xff000000 | (gray << 16) | (gray << 8) | gray;
+                    remaining -= 4;
+                    break;
+                case MODEL_LAB:
+                    color = lab(data.readFloat() * 100f, data.readFloat(), data.readFloat());
+                    remaining -= 12;
+                    break;
+                default:
+                    throw new IOException("Unsupported color model in block " + block);
+            }
+            if (remaining < 0)
+            {
+                throw new IOException("Invalid length of block " + block);
+            }
+            // skip the color type and anything we don't know
+            skip(data, remaining);
+            builder.add(color, colorName);
+        }
+        return builder.build(id, name, columns);
+    }
+
+
+    /**
+     * Read an Adobe swatch exchange file from a {@link ReadableByteChannel}. The channel is not closed, but it's read ahead in large chunks, so its position
+     * is undefined afterwards.
+     *
+     * @param channel
+     *         The {@link ReadableByteChannel} to read from.
+     * @param id
+     *         The id of the palette.
+     * @param name
+     *         The name of the palette.
+     * @param columns
+     *         The number of columns or a value &lt;= 0 to use a square layout if possible.
+     *
+     * @return An {@link ArrayPalette}.
+     *
+     * @throws IOException
+     *         If the channel can't be read or doesn't contain a valid swatch exchange file.
+     */
+    public static ArrayPalette read(ReadableByteChannel channel, String id, String name, int columns) throws IOException
+    {
+        return read(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), id, name, columns);
+    }
+
+
+    private static void skip(DataInputStream data, int count) throws IOException
+    {
+        while (count > 0)
+        {
+            int skipped = data.skipBytes(count);
+            if (skipped <= 0)
+            {
+                // skipBytes doesn't tell us about the end of the stream, read() does
+                if (data.read() < 0)
+                {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+
+    /**
+     * Converts a component in [0..1] to an 8 bit value.
+     */
+    private static int component(float value)
+    {
+        if (!(value > 0))
+        {
+            return 0;
+        }
+        if (value >= 1)
+        {
+            return 255;
+        }
+        return (int) (value * 255f + 0.5f);
+    }
+
+
+    private static int cmyk(float c, float m, float y, float k)
+    {
+        float white = 1 - k;
+        return 0xff000000 | (component((1 - c) * white) << 16) | (component((1 - m) * white) << 8) | component((1 - y) * white);
+    }
+
+
+    /**
+     * Converts a CIE LAB color with D50 white point to sRGB, adapting the white point with the Bradford transform.
+     */
+    private static int lab(float lightness, float a, float b)
+    {
+        float fy = (lightness + 16f) / 116f;
+        float fx = fy + a / 500f;
+        float fz = fy - b / 200f;
+
+        float x = D50_X * labInverse(fx);
+        float y = labInverse(fy);
+        float z = D50_Z * labInverse(fz);
+
+        return OkLab.fromLinear(
+                3.1338561f * x - 1.6168667f * y - 0.4906146f * z,
+                -0.9787684f * x + 1.9161415f * y + 0.0334540f * z,
+                0.0719453f * x - 0.2289914f * y + 1.4052427f * z);
+    }
+
+
+    private static float labInverse(float t)
+    {
+        return t > 6f / 29f ? t * t * t : 3f * (6f / 29f) * (6f / 29f) * (t - 4f / 29f);
+    }
+}
@@ -19,6 +19,9 @@ package org.dmfs.android.colorpicker.palettes;
 
 /**
  * A factory for colors.
+ * <p>
+ * Implementations should be immutable, so a single instance (like the constants below) can be used to generate palettes on multiple threads at the same
+ * time.
  *
  * @author Marten Gajda
  */
@@ -81,4 +84,29 @@ public interface ColorFactory
      */
     int colorAt(int index, int count);
 
+    /**
+     * Write the colors at the indices <code>start</code> (inclusive) to <code>end</code> (exclusive) of a palette of <code>count</code> colors into
+     * <code>target</code>, starting at <code>offset</code>.
+     * <p>
+     * The default implementation just calls {@link #colorAt(int, int)} for every index. Implementations should override this if they can generate a range
+     * of colors more efficiently.
+     *
+     * @param target
+     *         The array to write the colors to.
+     * @param offset
+     *         The position in <code>target</code> to write the color at index <code>start</code> to.
+     * @param start
+     *         The index of the first color to generate.
+     * @param end
+     *         The index after the last color to generate.
+     * @param count
+     *         The total number of colors in this palette.
+     */
+    default void fill(int[] target, int offset, int start, int end, int count)
+    {
+        for (int i = start; i < end; ++i)
+        {
+            target[offset++] = colorAt(i, count);
+        }
+    }
 }
\ No newline at end of file
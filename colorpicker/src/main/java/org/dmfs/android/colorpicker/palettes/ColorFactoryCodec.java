@@ -0,0 +1,176 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+
+/**
+ * Writes {@link ColorFactory}s to {@link Parcel}s and reads them back, so generated palettes only need to parcel the recipe of their colors instead of the
+ * colors themselves.
+ * <p>
+ * The built-in factories are written in a compact form (a type tag and their parameters). Custom factories can be written if they implement {@link
+ * Parcelable}.
+ *
+ * @author Marten Gajda
+ */
+final class ColorFactoryCodec
+{
+    /**
+     * Type tag for factories that can't be written.
+     */
+    private final static int TYPE_NONE = 0;
+    private final static int TYPE_SHADE = 1;
+    private final static int TYPE_LIGHTNESS = 2;
+    private final static int TYPE_RAINBOW = 3;
+    private final static int TYPE_COMBINED = 4;
+    private final static int TYPE_PARCELABLE = 5;
+    private final static int TYPE_OKLCH = 6;
+
+
+    private ColorFactoryCodec()
+    {
+        // no instances
+    }
+
+
+    /**
+     * Returns whether the given {@link ColorFactory} can be written to a {@link Parcel}.
+     *
+     * @param factory
+     *         The {@link ColorFactory} to check, may be <code>null</code>.
+     *
+     * @return <code>true</code> if {@link #write(Parcel, ColorFactory, int)} can write the factory.
+     */
+    static boolean canWrite(ColorFactory factory)
+    {
+        if (factory instanceof CombinedColorFactory)
+        {
+            for (ColorFactory child : ((CombinedColorFactory) factory).factories())
+            {
+                if (!canWrite(child))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return factory instanceof ColorShadeFactory
+                || factory instanceof ColorLightnessFactory
+                || factory instanceof RainbowColorFactory
+                || factory instanceof OklchColorFactory
+                || factory instanceof Parcelable;
+    }
+
+
+    /**
+     * Writes the given {@link ColorFactory} to a {@link Parcel}. Factories that can't be written are written as a single tag which is read back as
+     * <code>null</code>.
+     *
+     * @param dest
+     *         The {@link Parcel} to write to.
+     * @param factory
+     *         The {@link ColorFactory} to write.
+     * @param flags
+     *         The flags to pass to {@link Parcelable#writeToParcel(Parcel, int)}.
+     */
+    static void write(Parcel dest, ColorFactory factory, int flags)
+    {
+        if (!canWrite(factory))
+        {
+            dest.writeInt(TYPE_NONE);
+        }
+        else if (factory instanceof ColorShadeFactory)
+        {
+            dest.writeInt(TYPE_SHADE);
+            dest.writeFloat(((ColorShadeFactory) factory).hue());
+        }
+        else if (factory instanceof ColorLightnessFactory)
+        {
+            dest.writeInt(TYPE_LIGHTNESS);
+            dest.writeFloat(((ColorLightnessFactory) factory).hue());
+            dest.writeFloat(((ColorLightnessFactory) factory).saturation());
+        }
+        else if (factory instanceof RainbowColorFactory)
+        {
+            dest.writeInt(TYPE_RAINBOW);
+            dest.writeFloat(((RainbowColorFactory) factory).saturation());
+            dest.writeFloat(((RainbowColorFactory) factory).lightness());
+        }
+        else if (factory instanceof OklchColorFactory)
+        {
+            dest.writeInt(TYPE_OKLCH);
+            dest.writeFloat(((OklchColorFactory) factory).hue());
+            dest.writeFloat(((OklchColorFactory) factory).chroma());
+        }
+        else if (factory instanceof CombinedColorFactory)
+        {
+            ColorFactory[] factories = ((CombinedColorFactory) factory).factories();
+            dest.writeInt(TYPE_COMBINED);
+            dest.writeInt(factories.length);
+            for (ColorFactory child : factories)
+            {
+                write(dest, child, flags);
+            }
+        }
+        else
+        {
+            dest.writeInt(TYPE_PARCELABLE);
+            dest.writeParcelable((Parcelable) factory, flags);
+        }
+    }
+
+
+    /**
+     * Reads a {@link ColorFactory} that has been written by {@link #write(Parcel, ColorFactory, int)}.
+     *
+     * @param in
+     *         The {@link Parcel} to read from.
+     *
+     * @return The {@link ColorFactory} or <code>null</code> if no factory has been written.
+     */
+    static ColorFactory read(Parcel in)
+    {
+        int type = in.readInt();
+        switch (type)
+        {
+            case TYPE_NONE:
+                return null;
+            case TYPE_SHADE:
+                return new ColorShadeFactory(in.readFloat());
+            case TYPE_LIGHTNESS:
+                return new ColorLightnessFactory(in.readFloat(), in.readFloat());
+            case TYPE_RAINBOW:
+                return new RainbowColorFactory(in.readFloat(), in.readFloat());
+            case TYPE_OKLCH:
+                return new OklchColorFactory(in.readFloat(), in.readFloat());
+            case TYPE_COMBINED:
+                ColorFactory[] factories = new ColorFactory[in.readInt()];
+                for (int i = 0; i < factories.length; ++i)
+                {
+                    factories[i] = read(in);
+                }
+                return new CombinedColorFactory(factories);
+            case TYPE_PARCELABLE:
+                return in.readParcelable(ColorFactoryCodec.class.getClassLoader());
+            default:
+                throw new IllegalArgumentException("Unknown ColorFactory type " + type);
+        }
+    }
+}
@@ -27,13 +27,20 @@ import android.graphics.Color;
  */
 public final class ColorLightnessFactory implements ColorFactory
 {
-    private final float[] mHSL = new float[] { 0, 0, 0 };
+    /**
+     * The hue of all colors.
+     */
+    private final float mHue;
+    /**
+     * The saturation of all colors.
+     */
+    private final float mSaturation;
 
 
     public ColorLightnessFactory(float hue, float saturation)
     {
-        mHSL[0] = hue;
-        mHSL[1] = saturation;
+        mHue = hue;
+        mSaturation = saturation;
     }
 
 
@@ -45,10 +52,60 @@ public final class ColorLightnessFactory implements ColorFactory
             return Color.WHITE;
         }
 
-        float[] hsl = mHSL;
+        return HsvConverter.toArgb(255, mHue, mSaturation, (float) index / (count - 1));
+    }
+
+
+    @Override
+    public void fill(int[] target, int offset, int start, int end, int count)
+    {
+        if (count <= 1)
+        {
+            for (int i = start; i < end; ++i)
+            {
+                target[offset++] = Color.WHITE;
+            }
+            return;
+        }
+
+        float hue = mHue;
+        float saturation = mSaturation;
+        float divisor = count - 1;
+
+        for (int i = start; i < end; ++i)
+        {
+            target[offset++] = HsvConverter.toArgb(255, hue, saturation, i / divisor);
+        }
+    }
+
+
+    float hue()
+    {
+        return mHue;
+    }
+
+
+    float saturation()
+    {
+        return mSaturation;
+    }
 
-        hsl[2] = (float) index / (count - 1);
 
-        return Color.HSVToColor(255, hsl);
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof ColorLightnessFactory))
+        {
+            return false;
+        }
+        ColorLightnessFactory other = (ColorLightnessFactory) obj;
+        return Float.compare(other.mHue, mHue) == 0 && Float.compare(other.mSaturation, mSaturation) == 0;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return Float.floatToIntBits(mHue) * 31 + Float.floatToIntBits(mSaturation);
     }
 }
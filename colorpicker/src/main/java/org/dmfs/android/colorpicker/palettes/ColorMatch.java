@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+/**
+ * A reference to a color in a {@link Palette}.
+ *
+ * @author Marten Gajda
+ */
+public final class ColorMatch
+{
+    private final Palette mPalette;
+    private final int mIndex;
+    private final float mDistance;
+
+
+    /**
+     * Creates a reference to a color in a palette.
+     *
+     * @param palette
+     *         The {@link Palette} that contains the color.
+     * @param index
+     *         The index of the color in the palette.
+     * @param distance
+     *         The distance of the color to the color that has been searched for, or 0 if not applicable.
+     */
+    public ColorMatch(Palette palette, int index, float distance)
+    {
+        mPalette = palette;
+        mIndex = index;
+        mDistance = distance;
+    }
+
+
+    /**
+     * Returns the {@link Palette} that contains the color.
+     *
+     * @return The {@link Palette}.
+     */
+    public Palette palette()
+    {
+        return mPalette;
+    }
+
+
+    /**
+     * Returns the id of the {@link Palette} that contains the color.
+     *
+     * @return The palette id.
+     */
+    public String paletteId()
+    {
+        return mPalette.id();
+    }
+
+
+    /**
+     * Returns the index of the color in its {@link Palette}.
+     *
+     * @return The index.
+     */
+    public int index()
+    {
+        return mIndex;
+    }
+
+
+    /**
+     * Returns the color.
+     *
+     * @return The color.
+     */
+    public int color()
+    {
+        return mPalette.colorAt(mIndex);
+    }
+
+
+    /**
+     * Returns the name of the color.
+     *
+     * @return The name of the color or <code>null</code> if the color has no name.
+     */
+    public String name()
+    {
+        return mPalette.nameOfColorAt(mIndex);
+    }
+
+
+    /**
+     * Returns the distance of this color to the color that has been searched for. The distance is measured in OKLab space.
+     *
+     * @return The distance.
+     */
+    public float distance()
+    {
+        return mDistance;
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * An index of the names of the colors in a number of {@link Palette}s.
+ * <p>
+ * Names are split into words. A query matches a color if every word of the query is a prefix of a word in the name of the color, so "dar bl" finds "Dark
+ * Blue". If no color matches that way, the index falls back to a fuzzy search on the trigrams of the query, which tolerates typos.
+ * <p>
+ * The index is immutable, so it can be built and queried on any thread.
+ *
+ * @author Marten Gajda
+ */
+public final class ColorNameIndex
+{
+    /**
+     * The minimum share of the trigrams of a query that a name must contain to be a fuzzy match.
+     */
+    private final static float FUZZY_THRESHOLD = 0.4f;
+
+    private final Palette[] mPalettes;
+    /**
+     * The palette of each entry.
+     */
+    private final int[] mEntryPalette;
+    /**
+     * The color index of each entry.
+     */
+    private final int[] mEntryColor;
+    /**
+     * All words of all names, sorted.
+     */
+    private final String[] mWords;
+    /**
+     * The entry of each word in {@link #mWords}.
+     */
+    private final int[] mWordEntries;
+    /**
+     * The entries containing each trigram.
+     */
+    private final Map<String, int[]> mTrigrams;
+
+
+    /**
+     * Creates an index of the color names in the given {@link Palette}s. Colors without name are ignored.
+     *
+     * @param palettes
+     *         The {@link Palette}s to index.
+     */
+    public ColorNameIndex(Palette... palettes)
+    {
+        mPalettes = palettes.clone();
+
+        IntList entryPalette = new IntList();
+        IntList entryColor = new IntList();
+        List<String> words = new ArrayList<>();
+        IntList wordEntries = new IntList();
+        Map<String, IntList> trigrams = new HashMap<>();
+
+        for (int p = 0; p < palettes.length; ++p)
+        {
+            Palette palette = palettes[p];
+            for (int i = 0, count = palette.numberOfColors(); i < count; ++i)
+            {
+                String name = palette.nameOfColorAt(i);
+                if (name == null)
+                {
+                    continue;
+                }
+                int entry = entryPalette.size();
+                entryPalette.add(p);
+                entryColor.add(i);
+
+                String normalized = normalize(name);
+                for (String word : split(normalized))
+                {
+                    words.add(word);
+                    wordEntries.add(entry);
+                }
+                for (String trigram : trigrams(normalized))
+                {
+                    IntList list = trigrams.get(trigram);
+                    if (list == null)
+                    {
+                        list = new IntList();
+                        trigrams.put(trigram, list);
+                    }
+                    // trigrams are unique per name, so each entry is added only once
+                    list.add(entry);
+                }
+            }
+        }
+
+        mEntryPalette = entryPalette.toArray();
+        mEntryColor = entryColor.toArray();
+
+        // sort the words and their entries together
+        Integer[] order = new Integer[words.size()];
+        for (int i = 0; i < order.length; ++i)
+        {
+            order[i] = i;
+        }
+        final List<String> unsorted = words;
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer a, Integer b)
+            {
+                return unsorted.get(a).compareTo(unsorted.get(b));
+            }
+        });
+        mWords = new String[order.length];
+        mWordEntries = new int[order.length];
+        for (int i = 0; i < order.length; ++i)
+        {
+            mWords[i] = words.get(order[i]);
+            mWordEntries[i] = wordEntries.get(order[i]);
+        }
+
+        mTrigrams = new HashMap<>(trigrams.size() * 2);
+        for (Map.Entry<String, IntList> trigram : trigrams.entrySet())
+        {
+            mTrigrams.put(trigram.getKey(), trigram.getValue().toArray());
+        }
+    }
+
+
+    /**
+     * Returns all colors that match the given query, in the order of the palettes and their colors.
+     *
+     * @param query
+     *         The query.
+     *
+     * @return A {@link List} of {@link ColorMatch}es, which is empty if the query doesn't match anything.
+     */
+    public List<ColorMatch> search(CharSequence query)
+    {
+        String normalized = normalize(query.toString());
+        List<String> queryWords = split(normalized);
+        if (queryWords.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        BitSet result = null;
+        for (String word : queryWords)
+        {
+            BitSet matches = prefixMatches(word);
+            if (result == null)
+            {
+                result = matches;
+            }
+            else
+            {
+                result.and(matches);
+            }
+            if (result.isEmpty())
+            {
+                break;
+            }
+        }
+
+        if (result.isEmpty())
+        {
+            result = fuzzyMatches(normalized);
+        }
+
+        List<ColorMatch> matches = new ArrayList<>(result.cardinality());
+        for (int entry = result.nextSetBit(0); entry >= 0; entry = result.nextSetBit(entry + 1))
+        {
+            matches.add(new ColorMatch(mPalettes[mEntryPalette[entry]], mEntryColor[entry], 0));
+        }
+        return matches;
+    }
+
+
+    /**
+     * Returns the entries with a word that starts with the given prefix.
+     */
+    private BitSet prefixMatches(String prefix)
+    {
+        String[] words = mWords;
+        BitSet result = new BitSet(mEntryPalette.length);
+        // find the first word that's not smaller than the prefix, words occur multiple times, so Arrays.binarySearch might return any of them
+        int pos = 0;
+        int high = words.length;
+        while (pos < high)
+        {
+            int mid = (pos + high) >>> 1;
+            if (words[mid].compareTo(prefix) < 0)
+            {
+                pos = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        while (pos < words.length && words[pos].startsWith(prefix))
+        {
+            result.set(mWordEntries[pos++]);
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the entries that share enough trigrams with the given query.
+     */
+    private BitSet fuzzyMatches(String query)
+    {
+        List<String> trigrams = trigrams(query);
+        BitSet result = new BitSet(mEntryPalette.length);
+        if (trigrams.isEmpty())
+        {
+            return result;
+        }
+
+        int[] scores = new int[mEntryPalette.length];
+        int threshold = Math.max(1, (int) (trigrams.size() * FUZZY_THRESHOLD));
+        for (String trigram : trigrams)
+        {
+            int[] entries = mTrigrams.get(trigram);
+            if (entries != null)
+            {
+                for (int entry : entries)
+                {
+                    if (++scores[entry] == threshold)
+                    {
+                        result.set(entry);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+
+    private static String normalize(String text)
+    {
+        return text.toLowerCase(Locale.getDefault()).trim();
+    }
+
+
+    private static List<String> split(String text)
+    {
+        List<String> result = new ArrayList<>(4);
+        int start = -1;
+        for (int i = 0, length = text.length(); i <= length; ++i)
+        {
+            boolean letter = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0)
+            {
+                start = i;
+            }
+            else if (!letter && start >= 0)
+            {
+                result.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the distinct trigrams of the given text, with word boundaries represented by a space.
+     */
+    private static List<String> trigrams(String text)
+    {
+        List<String> words = split(text);
+        List<String> result = new ArrayList<>();
+        for (String word : words)
+        {
+            String padded = " " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); ++i)
+            {
+                String trigram = padded.substring(i, i + 3);
+                if (!result.contains(trigram))
+                {
+                    result.add(trigram);
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * A minimal growable list of ints.
+     */
+    private final static class IntList
+    {
+        private int[] mValues = new int[16];
+        private int mSize;
+
+
+        void add(int value)
+        {
+            if (mSize == mValues.length)
+            {
+                mValues = Arrays.copyOf(mValues, mSize * 2);
+            }
+            mValues[mSize++] = value;
+        }
+
+
+        int get(int index)
+        {
+            return mValues[index];
+        }
+
+
+        int size()
+        {
+            return mSize;
+        }
+
+
+        int[] toArray()
+        {
+            return Arrays.copyOf(mValues, mSize);
+        }
+    }
+}
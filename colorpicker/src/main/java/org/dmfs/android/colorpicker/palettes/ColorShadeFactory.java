@@ -17,9 +17,6 @@
 
 package org.dmfs.android.colorpicker.palettes;
 
-import android.graphics.Color;
-
-
 /**
  * A Factory that returns colors with a specific HUE value. This factory leaves out the edge cases - pure black and pure white.
  *
@@ -27,12 +24,15 @@ import android.graphics.Color;
  */
 public final class ColorShadeFactory implements ColorFactory
 {
-    private final float[] mHSL = new float[] { 0, 0, 0 };
+    /**
+     * The hue of all colors.
+     */
+    private final float mHue;
 
 
     public ColorShadeFactory(float hue)
     {
-        mHSL[0] = hue;
+        mHue = hue;
     }
 
 
@@ -41,18 +41,55 @@ public final class ColorShadeFactory implements ColorFactory
     {
         index++;
         count++;
-        float[] hsl = mHSL;
 
         if (index <= count / 2)
         {
-            hsl[1] = 1f;
-            hsl[2] = index * 2f / count;
+            return HsvConverter.toArgb(255, mHue, 1f, index * 2f / count);
         }
         else
         {
-            hsl[1] = 2f - index * 2f / count;
-            hsl[2] = 1f;
+            return HsvConverter.toArgb(255, mHue, 2f - index * 2f / count, 1f);
+        }
+    }
+
+
+    @Override
+    public void fill(int[] target, int offset, int start, int end, int count)
+    {
+        float hue = mHue;
+        int total = count + 1;
+        int half = total / 2;
+
+        // the first half has full saturation and increasing value
+        for (int i = start, e = Math.min(end, half); i < e; ++i)
+        {
+            target[offset++] = HsvConverter.toArgb(255, hue, 1f, (i + 1) * 2f / total);
         }
-        return Color.HSVToColor(255, hsl);
+
+        // the second half has full value and decreasing saturation
+        for (int i = Math.max(start, half); i < end; ++i)
+        {
+            target[offset++] = HsvConverter.toArgb(255, hue, 2f - (i + 1) * 2f / total, 1f);
+        }
+    }
+
+
+    float hue()
+    {
+        return mHue;
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof ColorShadeFactory && Float.compare(((ColorShadeFactory) obj).mHue, mHue) == 0;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return Float.floatToIntBits(mHue);
     }
 }
@@ -17,6 +17,9 @@
 
 package org.dmfs.android.colorpicker.palettes;
 
+import java.util.Arrays;
+
+
 /**
  * A Factory that combines multiple factories into one, by concatenation of the palettes.
  *
@@ -29,7 +32,7 @@ public final class CombinedColorFactory implements ColorFactory
 
     public CombinedColorFactory(ColorFactory... factories)
     {
-        mFactories = factories;
+        mFactories = factories.clone();
     }
 
 
@@ -40,4 +43,54 @@ public final class CombinedColorFactory implements ColorFactory
         return mFactories[(index * factoryCount) / count].colorAt(index % (count / factoryCount), count / factoryCount);
     }
 
+
+    @Override
+    public void fill(int[] target, int offset, int start, int end, int count)
+    {
+        ColorFactory[] factories = mFactories;
+        int factoryCount = factories.length;
+        int segmentSize = count / factoryCount;
+
+        if (segmentSize == 0)
+        {
+            // degenerate case, leave error handling to colorAt
+            ColorFactory.super.fill(target, offset, start, end, count);
+            return;
+        }
+
+        int index = start;
+        while (index < end)
+        {
+            int factory = (index * factoryCount) / count;
+            // the first index that belongs to the next factory
+            int factoryEnd = Math.min(end, ((factory + 1) * count + factoryCount - 1) / factoryCount);
+            int subIndex = index % segmentSize;
+            // don't run past the end of the segment, in case count is not a multiple of factoryCount the index wraps around
+            int runEnd = Math.min(factoryEnd, index + segmentSize - subIndex);
+
+            factories[factory].fill(target, offset, subIndex, subIndex + runEnd - index, segmentSize);
+            offset += runEnd - index;
+            index = runEnd;
+        }
+    }
+
+
+    ColorFactory[] factories()
+    {
+        return mFactories;
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof CombinedColorFactory && Arrays.equals(((CombinedColorFactory) obj).mFactories, mFactories);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(mFactories);
+    }
 }
@@ -50,6 +50,10 @@ public final class FactoryPalette implements Palette
      * The Id of this palette.
      */
     private String mPaletteId;
+    /**
+     * The {@link ColorFactory} that generated the colors, used to parcel this palette. May be <code>null</code>.
+     */
+    private ColorFactory mFactory;
     /**
      * The colors in this palette.
      */
@@ -58,6 +62,7 @@ public final class FactoryPalette implements Palette
      * The number of columns to use for the layout of this palette.
      */
     private int mColumns;
+    private final PaletteFingerprint.Cache mFingerprint = new PaletteFingerprint.Cache();
 
 
     /**
@@ -86,11 +91,9 @@ public final class FactoryPalette implements Palette
     {
         mPaletteId = id;
         mName = name;
+        mFactory = colorProvider;
         int[] values = new int[count];
-        for (int i = 0; i < count; ++i)
-        {
-            values[i] = colorProvider.colorAt(i, count);
-        }
+        colorProvider.fill(values, 0, 0, count, count);
         mValues = values;
         mColumns = columns;
     }
@@ -156,6 +159,27 @@ public final class FactoryPalette implements Palette
     }
 
 
+    @Override
+    public long fingerprint()
+    {
+        return mFingerprint.of(this);
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return PaletteFingerprint.equals(this, obj);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return PaletteFingerprint.hashCode(this);
+    }
+
+
     @Override
     public int describeContents()
     {
@@ -166,16 +190,36 @@ public final class FactoryPalette implements Palette
     @Override
     public void writeToParcel(Parcel dest, int flags)
     {
+        dest.writeString(mPaletteId);
         dest.writeString(mName);
-        dest.writeIntArray(mValues);
         dest.writeInt(mColumns);
+        dest.writeInt(mValues.length);
+        // write the factory if possible, the colors are regenerated when reading the palette
+        ColorFactoryCodec.write(dest, mFactory, flags);
+        if (!ColorFactoryCodec.canWrite(mFactory))
+        {
+            dest.writeIntArray(mValues);
+        }
     }
 
 
     public void readFromParcel(Parcel in)
     {
+        mFingerprint.reset();
+        mPaletteId = in.readString();
         mName = in.readString();
-        mValues = in.createIntArray();
         mColumns = in.readInt();
+        int count = in.readInt();
+        mFactory = ColorFactoryCodec.read(in);
+        if (mFactory == null)
+        {
+            mValues = in.createIntArray();
+        }
+        else
+        {
+            int[] values = new int[count];
+            mFactory.fill(values, 0, 0, count, count);
+            mValues = values;
+        }
     }
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+
+/**
+ * Reads GIMP palette files (<code>.gpl</code>) into {@link ArrayPalette}s.
+ * <p>
+ * The file is read in a single pass directly from the bytes of the stream, no objects are created per color except for the color names.
+ *
+ * @author Marten Gajda
+ */
+public final class GplPaletteReader
+{
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+    private final static int BUFFER_SIZE = 16 * 1024;
+
+    private final static byte[] NAME_HEADER = "Name:".getBytes(UTF8);
+
+    private final static byte[] COLUMNS_HEADER = "Columns:".getBytes(UTF8);
+
+    private final static byte[] MAGIC = "GIMP Palette".getBytes(UTF8);
+
+    /**
+     * The largest column count we accept. GIMP itself doesn't allow more than 64 columns.
+     */
+    private final static int MAX_COLUMNS = 256;
+
+
+    private GplPaletteReader()
+    {
+        // no instances
+    }
+
+
+    /**
+     * Read a GIMP palette from an {@link InputStream}. The stream is not closed.
+     *
+     * @param in
+     *         The {@link InputStream} to read from.
+     * @param id
+     *         The id of the palette.
+     * @param defaultName
+     *         The name of the palette, in case the file doesn't contain a name.
+     *
+     * @return An {@link ArrayPalette}.
+     *
+     * @throws IOException
+     *         If the stream can't be read or doesn't contain a GIMP palette.
+     */
+    public static ArrayPalette read(InputStream in, String id, String defaultName) throws IOException
+    {
+        PaletteBuilder builder = new PaletteBuilder();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        int lineNumber = 0;
+        String name = defaultName;
+        int columns = 0;
+        boolean skipLf = false;
+
+        int read;
+        boolean eof = false;
+        while (!eof)
+        {
+            read = in.read(buffer);
+            eof = read < 0;
+            for (int i = 0; i < read || eof && i == 0; ++i)
+            {
+                byte b = eof ? (byte) '\n' : buffer[i];
+                if (skipLf && b == '\n')
+                {
+                    // second half of a \r\n line break
+                    skipLf = false;
+                    continue;
+                }
+                skipLf = b == '\r';
+                if (b != '\n' && b != '\r')
+                {
+                    if (lineLength == line.length)
+                    {
+                        line = Arrays.copyOf(line, lineLength * 2);
+                    }
+                    line[lineLength++] = b;
+                    continue;
+                }
+
+                // we have a complete line
+                if (lineNumber++ == 0)
+                {
+                    if (!startsWith(line, skipWhitespace(line, 0, lineLength), lineLength, MAGIC))
+                    {
+                        throw new IOException("Not a GIMP palette");
+                    }
+                }
+                else
+                {
+                    int start = skipWhitespace(line, 0, lineLength);
+                    if (start < lineLength && line[start] != '#')
+                    {
+                        if (startsWith(line, start, lineLength, NAME_HEADER))
+                        {
+                            name = string(line, start + NAME_HEADER.length, lineLength);
+                        }
+                        else if (startsWith(line, start, lineLength, COLUMNS_HEADER))
+                        {
+                            columns = parseColumns(line, start + COLUMNS_HEADER.length, lineLength, lineNumber);
+                        }
+                        else
+                        {
+                            parseColor(line, start, lineLength, lineNumber, builder);
+                        }
+                    }
+                }
+                lineLength = 0;
+            }
+        }
+        if (lineNumber == 0)
+        {
+            throw new IOException("Not a GIMP palette");
+        }
+        return builder.build(id, name, columns);
+    }
+
+
+    /**
+     * Read a GIMP palette from a {@link ReadableByteChannel}. The channel is not closed.
+     *
+     * @param channel
+     *         The {@link ReadableByteChannel} to read from.
+     * @param id
+     *         The id of the palette.
+     * @param defaultName
+     *         The name of the palette, in case the file doesn't contain a name.
+     *
+     * @return An {@link ArrayPalette}.
+     *
+     * @throws IOException
+     *         If the channel can't be read or doesn't contain a GIMP palette.
+     */
+    public static ArrayPalette read(ReadableByteChannel channel, String id, String defaultName) throws IOException
+    {
+        return read(Channels.newInputStream(channel), id, defaultName);
+    }
+
+
+    private static void parseColor(byte[] line, int pos, int end, int lineNumber, PaletteBuilder builder) throws IOException
+    {
+        int color = 0xff000000;
+        for (int component = 0; component < 3; ++component)
+        {
+            pos = skipWhitespace(line, pos, end);
+            int value = 0;
+            int digits = 0;
+            while (pos < end && line[pos] >= '0' && line[pos] <= '9')
+            {
+                value = value * 10 + line[pos++] - '0';
+                ++digits;
+                if (value > 255)
+                {
+                    // fail before the value can overflow
+                    throw new IOException("Invalid color in line " + lineNumber);
+                }
+            }
+            if (digits == 0)
+            {
+                throw new IOException("Invalid color in line " + lineNumber);
+            }
+            color |= value << (16 - component * 8);
+        }
+        builder.add(color, string(line, pos, end));
+    }
+
+
+    private static int parseColumns(byte[] line, int pos, int end, int lineNumber) throws IOException
+    {
+        pos = skipWhitespace(line, pos, end);
+        int value = 0;
+        int start = pos;
+        while (pos < end && line[pos] >= '0' && line[pos] <= '9')
+        {
+            value = value * 10 + line[pos++] - '0';
+            if (value > MAX_COLUMNS)
+            {
+                // fail before the value can overflow
+                throw new IOException("Invalid column count in line " + lineNumber);
+            }
+        }
+        if (pos == start)
+        {
+            throw new IOException("Invalid column count in line " + lineNumber);
+        }
+        return value;
+    }
+
+
+    /**
+     * Returns the trimmed string in the given range or <code>null</code> if it's empty.
+     */
+    private static String string(byte[] line, int start, int end)
+    {
+        start = skipWhitespace(line, start, end);
+        while (end > start && (line[end - 1] == ' ' || line[end - 1] == '\t'))
+        {
+            --end;
+        }
+        return end > start ? new String(line, start, end - start, UTF8) : null;
+    }
+
+
+    private static int skipWhitespace(byte[] line, int pos, int end)
+    {
+        while (pos < end && (line[pos] == ' ' || line[pos] == '\t'))
+        {
+            ++pos;
+        }
+        return pos;
+    }
+
+
+    private static boolean startsWith(byte[] line, int pos, int end, byte[] prefix)
+    {
+        if (end - pos < prefix.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; ++i)
+        {
+            if (line[pos + i] != prefix[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
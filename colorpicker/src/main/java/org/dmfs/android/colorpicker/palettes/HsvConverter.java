@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+/**
+ * Converts HSV colors to ARGB integers in plain Java.
+ * <p>
+ * The results are the same as those of {@link android.graphics.Color#HSVToColor(int, float[])}, but the conversion doesn't need a native call and doesn't
+ * allocate anything.
+ *
+ * @author Marten Gajda
+ */
+public final class HsvConverter
+{
+    /**
+     * Saturation values up to this are considered to be zero (same threshold as Skia uses).
+     */
+    private final static float NEARLY_ZERO = 1f / (1 << 12);
+
+
+    private HsvConverter()
+    {
+        // no instances
+    }
+
+
+    /**
+     * Convert the given HSV components to an ARGB color.
+     *
+     * @param alpha
+     *         The alpha value of the result in the range [0..255].
+     * @param hue
+     *         The hue in the range [0..360).
+     * @param saturation
+     *         The saturation in the range [0..1].
+     * @param value
+     *         The value in the range [0..1].
+     *
+     * @return The color.
+     */
+    public static int toArgb(int alpha, float hue, float saturation, float value)
+    {
+        float s = saturation < 0 ? 0 : saturation > 1 ? 1 : saturation;
+        float v = value < 0 ? 0 : value > 1 ? 1 : value;
+        int vByte = round(v * 255);
+
+        if (s <= NEARLY_ZERO)
+        {
+            // a shade of grey
+            return (alpha << 24) | (vByte << 16) | (vByte << 8) | vByte;
+        }
+
+        float hx = hue < 0 || hue >= 360 ? 0 : hue / 60;
+        float w = (float) Math.floor(hx);
+        float f = hx - w;
+        int p = round((1f - s) * v * 255);
+        int q = round((1f - s * f) * v * 255);
+        int t = round((1f - s * (1f - f)) * v * 255);
+
+        return argb(alpha, (int) w, vByte, p, q, t);
+    }
+
+
+    /**
+     * Convert the given HSV components to an ARGB color. This is a drop-in replacement for {@link android.graphics.Color#HSVToColor(int, float[])}.
+     *
+     * @param alpha
+     *         The alpha value of the result in the range [0..255].
+     * @param hsv
+     *         An array with hue, saturation and value.
+     *
+     * @return The color.
+     */
+    public static int toArgb(int alpha, float[] hsv)
+    {
+        return toArgb(alpha, hsv[0], hsv[1], hsv[2]);
+    }
+
+
+    /**
+     * Convert <code>length</code> HSV colors to ARGB colors.
+     *
+     * @param alpha
+     *         The alpha value of the results in the range [0..255].
+     * @param hue
+     *         The hues.
+     * @param saturation
+     *         The saturations.
+     * @param value
+     *         The values.
+     * @param sourceOffset
+     *         The index of the first color in the source arrays.
+     * @param target
+     *         The array to write the results to.
+     * @param targetOffset
+     *         The index in <code>target</code> to write the first result to.
+     * @param length
+     *         The number of colors to convert.
+     */
+    public static void toArgb(int alpha, float[] hue, float[] saturation, float[] value, int sourceOffset, int[] target, int targetOffset, int length)
+    {
+        for (int i = 0; i < length; ++i)
+        {
+            target[targetOffset + i] = toArgb(alpha, hue[sourceOffset + i], saturation[sourceOffset + i], value[sourceOffset + i]);
+        }
+    }
+
+
+    private static int argb(int alpha, int sector, int v, int p, int q, int t)
+    {
+        int rgb;
+        switch (sector)
+        {
+            case 0:
+                rgb = (v << 16) | (t << 8) | p;
+                break;
+            case 1:
+                rgb = (q << 16) | (v << 8) | p;
+                break;
+            case 2:
+                rgb = (p << 16) | (v << 8) | t;
+                break;
+            case 3:
+                rgb = (p << 16) | (q << 8) | v;
+                break;
+            case 4:
+                rgb = (t << 16) | (p << 8) | v;
+                break;
+            default:
+                rgb = (v << 16) | (p << 8) | q;
+                break;
+        }
+        return (alpha << 24) | rgb;
+    }
+
+
+    private static int round(float x)
+    {
+        return (int) Math.floor(x + 0.5f);
+    }
+}
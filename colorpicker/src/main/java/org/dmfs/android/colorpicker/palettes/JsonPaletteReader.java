@@ -0,0 +1,599 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+
+/**
+ * Reads JSON palette files into {@link ArrayPalette}s. The expected format looks like this:
+ * <pre>
+ * {
+ *   "id": "my_palette",
+ *   "name": "My Palette",
+ *   "columns": 4,
+ *   "colors": [
+ *     "#ff0000",
+ *     "#8000ff00",
+ *     { "color": "#0000ff", "name": "Blue" },
+ *     4294967295
+ *   ]
+ * }
+ * </pre>
+ * All members except for <code>colors</code> are optional, unknown members are ignored. Colors are either strings in the form <code>#rrggbb</code> or
+ * <code>#aarrggbb</code>, ARGB numbers or objects with a <code>color</code> and an optional <code>name</code>. A file may also contain just the array of
+ * colors.
+ * <p>
+ * The file is read in a single pass by a minimal UTF-8 JSON scanner, no objects are created per color except for the color names.
+ *
+ * @author Marten Gajda
+ */
+public final class JsonPaletteReader
+{
+    private final static int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * The maximum nesting depth of values that are skipped. Deeper nesting is rejected to protect the stack.
+     */
+    private final static int MAX_DEPTH = 64;
+
+
+    private JsonPaletteReader()
+    {
+        // no instances
+    }
+
+
+    /**
+     * Read a JSON palette from an {@link InputStream}. The stream is not closed, but it's read ahead in large chunks, so its position is undefined afterwards.
+     *
+     * @param in
+     *         The {@link InputStream} to read from.
+     * @param defaultId
+     *         The id of the palette, in case the file doesn't contain an id.
+     * @param defaultName
+     *         The name of the palette, in case the file doesn't contain a name.
+     *
+     * @return An {@link ArrayPalette}.
+     *
+     * @throws IOException
+     *         If the stream can't be read or doesn't contain a valid palette.
+     */
+    public static ArrayPalette read(InputStream in, String defaultId, String defaultName) throws IOException
+    {
+        Scanner scanner = new Scanner(in);
+        PaletteBuilder builder = new PaletteBuilder();
+        String id = defaultId;
+        String name = defaultName;
+        int columns = 0;
+
+        int c = scanner.peek();
+        if (c == '[')
+        {
+            readColors(scanner, builder);
+        }
+        else if (c == '{')
+        {
+            scanner.next();
+            boolean hasColors = false;
+            if (scanner.peek() != '}')
+            {
+                do
+                {
+                    scanner.readString();
+                    scanner.expect(':');
+                    if (scanner.stringEquals("colors"))
+                    {
+                        readColors(scanner, builder);
+                        hasColors = true;
+                    }
+                    else if (scanner.stringEquals("id"))
+                    {
+                        if (scanner.readStringOrNull())
+                        {
+                            id = scanner.string();
+                        }
+                    }
+                    else if (scanner.stringEquals("name"))
+                    {
+                        if (scanner.readStringOrNull())
+                        {
+                            name = scanner.string();
+                        }
+                    }
+                    else if (scanner.stringEquals("columns"))
+                    {
+                        columns = (int) scanner.readLong();
+                    }
+                    else
+                    {
+                        scanner.skipValue(0);
+                    }
+                }
+                while (scanner.nextIf(','));
+            }
+            scanner.expect('}');
+            if (!hasColors)
+            {
+                throw new IOException("No colors in palette");
+            }
+        }
+        else
+        {
+            throw scanner.error("Palette expected");
+        }
+        return builder.build(id, name, columns);
+    }
+
+
+    /**
+     * Read a JSON palette from a {@link ReadableByteChannel}. The channel is not closed.
+     *
+     * @param channel
+     *         The {@link ReadableByteChannel} to read from.
+     * @param defaultId
+     *         The id of the palette, in case the file doesn't contain an id.
+     * @param defaultName
+     *         The name of the palette, in case the file doesn't contain a name.
+     *
+     * @return An {@link ArrayPalette}.
+     *
+     * @throws IOException
+     *         If the channel can't be read or doesn't contain a valid palette.
+     */
+    public static ArrayPalette read(ReadableByteChannel channel, String defaultId, String defaultName) throws IOException
+    {
+        return read(Channels.newInputStream(channel), defaultId, defaultName);
+    }
+
+
+    private static void readColors(Scanner scanner, PaletteBuilder builder) throws IOException
+    {
+        scanner.expect('[');
+        if (scanner.peek() != ']')
+        {
+            do
+            {
+                if (scanner.peek() == '{')
+                {
+                    scanner.next();
+                    boolean hasColor = false;
+                    int color = 0;
+                    String colorName = null;
+                    if (scanner.peek() != '}')
+                    {
+                        do
+                        {
+                            scanner.readString();
+                            scanner.expect(':');
+                            if (scanner.stringEquals("color"))
+                            {
+                                color = readColor(scanner);
+                                hasColor = true;
+                            }
+                            else if (scanner.stringEquals("name"))
+                            {
+                                colorName = scanner.readStringOrNull() ? scanner.string() : null;
+                            }
+                            else
+                            {
+                                scanner.skipValue(0);
+                            }
+                        }
+                        while (scanner.nextIf(','));
+                    }
+                    scanner.expect('}');
+                    if (!hasColor)
+                    {
+                        throw scanner.error("Color expected");
+                    }
+                    builder.add(color, colorName);
+                }
+                else
+                {
+                    builder.add(readColor(scanner), null);
+                }
+            }
+            while (scanner.nextIf(','));
+        }
+        scanner.expect(']');
+    }
+
+
+    private static int readColor(Scanner scanner) throws IOException
+    {
+        if (scanner.peek() != '"')
+        {
+            return (int) scanner.readLong();
+        }
+        scanner.readString();
+        char[] chars = scanner.mChars;
+        int length = scanner.mLength;
+        if ((length != 7 && length != 9) || chars[0] != '#')
+        {
+            throw scanner.error("Invalid color");
+        }
+        int color = 0;
+        for (int i = 1; i < length; ++i)
+        {
+            int digit = Character.digit(chars[i], 16);
+            if (digit < 0)
+            {
+                throw scanner.error("Invalid color");
+            }
+            color = (color << 4) | digit;
+        }
+        return length == 7 ? 0xff000000 | color : color;
+    }
+
+
+    /**
+     * A minimal JSON scanner that decodes strings into a reusable buffer.
+     */
+    private final static class Scanner
+    {
+        private final InputStream mIn;
+        private final byte[] mBuffer = new byte[BUFFER_SIZE];
+        private int mPos;
+        private int mLimit;
+        private long mOffset;
+
+        /**
+         * The last string that has been read.
+         */
+        private char[] mChars = new char[64];
+        private int mLength;
+
+
+        private Scanner(InputStream in)
+        {
+            mIn = in;
+        }
+
+
+        /**
+         * Returns the next byte without consuming it or -1 at the end of the input.
+         */
+        private int peekByte() throws IOException
+        {
+            if (mPos == mLimit)
+            {
+                mOffset += mLimit;
+                mPos = 0;
+                mLimit = Math.max(0, mIn.read(mBuffer));
+                if (mLimit == 0)
+                {
+                    return -1;
+                }
+            }
+            return mBuffer[mPos] & 0xff;
+        }
+
+
+        private int readByte() throws IOException
+        {
+            int b = peekByte();
+            if (b < 0)
+            {
+                throw new EOFException();
+            }
+            ++mPos;
+            return b;
+        }
+
+
+        /**
+         * Returns the next non-whitespace character without consuming it.
+         */
+        private int peek() throws IOException
+        {
+            int b = peekByte();
+            while (b == ' ' || b == '\t' || b == '\n' || b == '\r')
+            {
+                ++mPos;
+                b = peekByte();
+            }
+            if (b < 0)
+            {
+                throw new EOFException();
+            }
+            return b;
+        }
+
+
+        private int next() throws IOException
+        {
+            int b = peek();
+            ++mPos;
+            return b;
+        }
+
+
+        private void expect(char c) throws IOException
+        {
+            if (peek() != c)
+            {
+                throw error("'" + c + "' expected");
+            }
+            ++mPos;
+        }
+
+
+        private boolean nextIf(char c) throws IOException
+        {
+            if (peek() == c)
+            {
+                ++mPos;
+                return true;
+            }
+            return false;
+        }
+
+
+        private IOException error(String message)
+        {
+            return new IOException(message + " at offset " + (mOffset + mPos));
+        }
+
+
+        /**
+         * Reads a string into {@link #mChars}.
+         */
+        private void readString() throws IOException
+        {
+            expect('"');
+            int length = 0;
+            while (true)
+            {
+                int b = readByte();
+                if (b == '"')
+                {
+                    break;
+                }
+                if (length + 2 > mChars.length)
+                {
+                    mChars = Arrays.copyOf(mChars, mChars.length * 2);
+                }
+                if (b == '\\')
+                {
+                    mChars[length++] = escape();
+                }
+                else if (b < 0x80)
+                {
+                    mChars[length++] = (char) b;
+                }
+                else if ((b & 0xe0) == 0xc0 && b >= 0xc2)
+                {
+                    // 0xc0 and 0xc1 would start overlong sequences
+                    mChars[length++] = (char) (((b & 0x1f) << 6) | continuation());
+                }
+                else if ((b & 0xf0) == 0xe0)
+                {
+                    int c = ((b & 0x0f) << 12) | (continuation() << 6) | continuation();
+                    if (c < 0x800 || c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)
+                    {
+                        // overlong or an encoded surrogate
+                        throw error("Invalid UTF-8 sequence");
+                    }
+                    mChars[length++] = (char) c;
+                }
+                else if ((b & 0xf8) == 0xf0)
+                {
+                    int codePoint = ((b & 0x07) << 18) | (continuation() << 12) | (continuation() << 6) | continuation();
+                    if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT)
+                    {
+                        // overlong or beyond the Unicode range
+                        throw error("Invalid UTF-8 sequence");
+                    }
+                    length += Character.toChars(codePoint, mChars, length);
+                }
+                else
+                {
+                    throw error("Invalid UTF-8 sequence");
+                }
+            }
+            mLength = length;
+        }
+
+
+        /**
+         * Reads a string into {@link #mChars} or the literal <code>null</code>.
+         *
+         * @return <code>true</code> if a string has been read, <code>false</code> if the value was <code>null</code>.
+         */
+        private boolean readStringOrNull() throws IOException
+        {
+            if (peek() != 'n')
+            {
+                readString();
+                return true;
+            }
+            ++mPos;
+            if (readByte() != 'u' || readByte() != 'l' || readByte() != 'l')
+            {
+                throw error("'null' expected");
+            }
+            return false;
+        }
+
+
+        private int continuation() throws IOException
+        {
+            int b = readByte();
+            if ((b & 0xc0) != 0x80)
+            {
+                throw error("Invalid UTF-8 sequence");
+            }
+            return b & 0x3f;
+        }
+
+
+        private char escape() throws IOException
+        {
+            int b = readByte();
+            switch (b)
+            {
+                case '"':
+                case '\\':
+                case '/':
+                    return (char) b;
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'u':
+                    int c = 0;
+                    for (int i = 0; i < 4; ++i)
+                    {
+                        int digit = Character.digit(readByte(), 16);
+                        if (digit < 0)
+                        {
+                            throw error("Invalid escape sequence");
+                        }
+                        c = (c << 4) | digit;
+                    }
+                    // surrogate pairs are just two consecutive escapes, so there is nothing special to do
+                    return (char) c;
+                default:
+                    throw error("Invalid escape sequence");
+            }
+        }
+
+
+        private boolean stringEquals(String value)
+        {
+            int length = mLength;
+            if (value.length() != length)
+            {
+                return false;
+            }
+            char[] chars = mChars;
+            for (int i = 0; i < length; ++i)
+            {
+                if (chars[i] != value.charAt(i))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
+        private String string()
+        {
+            return new String(mChars, 0, mLength);
+        }
+
+
+        private long readLong() throws IOException
+        {
+            int b = peek();
+            boolean negative = b == '-';
+            if (negative)
+            {
+                ++mPos;
+                b = peekByte();
+            }
+            if (b < '0' || b > '9')
+            {
+                throw error("Number expected");
+            }
+            long value = 0;
+            while (b >= '0' && b <= '9')
+            {
+                value = value * 10 + b - '0';
+                if (value > 0xffffffffL)
+                {
+                    throw error("Number out of range");
+                }
+                ++mPos;
+                b = peekByte();
+            }
+            if (b == '.' || b == 'e' || b == 'E')
+            {
+                throw error("Integer expected");
+            }
+            return negative ? -value : value;
+        }
+
+
+        private void skipValue(int depth) throws IOException
+        {
+            if (depth > MAX_DEPTH)
+            {
+                throw error("Nesting too deep");
+            }
+            int b = peek();
+            switch (b)
+            {
+                case '"':
+                    readString();
+                    break;
+                case '{':
+                    ++mPos;
+                    if (peek() != '}')
+                    {
+                        do
+                        {
+                            readString();
+                            expect(':');
+                            skipValue(depth + 1);
+                        }
+                        while (nextIf(','));
+                    }
+                    expect('}');
+                    break;
+                case '[':
+                    ++mPos;
+                    if (peek() != ']')
+                    {
+                        do
+                        {
+                            skipValue(depth + 1);
+                        }
+                        while (nextIf(','));
+                    }
+                    expect(']');
+                    break;
+                default:
+                    // numbers and literals
+                    if (!(b == '-' || b >= '0' && b <= '9' || b >= 'a' && b <= 'z'))
+                    {
+                        throw error("Value expected");
+                    }
+                    do
+                    {
+                        ++mPos;
+                        b = peekByte();
+                    }
+                    while (b == '-' || b == '+' || b == '.' || b >= '0' && b <= '9' || b >= 'a' && b <= 'z' || b == 'E');
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A palette like {@link FactoryPalette}, but the colors are not generated before they are actually needed. Colors are generated in small blocks the first
+ * time one of them is requested and remembered afterwards.
+ * <p>
+ * It's safe to access instances of this class from multiple threads, as long as the {@link ColorFactory} is thread-safe.
+ *
+ * @author Marten Gajda
+ */
+public final class LazyFactoryPalette implements Palette
+{
+
+    public static final Parcelable.Creator<LazyFactoryPalette> CREATOR = new Parcelable.Creator<LazyFactoryPalette>()
+    {
+        @Override
+        public LazyFactoryPalette createFromParcel(Parcel in)
+        {
+            String id = in.readString();
+            String name = in.readString();
+            int columns = in.readInt();
+            int count = in.readInt();
+            ColorFactory factory = ColorFactoryCodec.read(in);
+            if (factory == null)
+            {
+                // the factory couldn't be parcelled, so the colors have been written instead
+                int[] values = in.createIntArray();
+                return new LazyFactoryPalette(id, name, new ArrayFactory(values), values, columns, true);
+            }
+            return new LazyFactoryPalette(id, name, factory, new int[count], columns, false);
+        }
+
+
+        @Override
+        public LazyFactoryPalette[] newArray(int size)
+        {
+            return new LazyFactoryPalette[size];
+        }
+    };
+
+    /**
+     * The number of colors per block as a power of two.
+     */
+    private final static int BLOCK_SHIFT = 5;
+
+    private final static int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    /**
+     * The display name of this palette.
+     */
+    private final String mName;
+    /**
+     * The Id of this palette.
+     */
+    private final String mPaletteId;
+    /**
+     * The {@link ColorFactory} that generates the colors.
+     */
+    private final ColorFactory mFactory;
+    /**
+     * The colors in this palette, only the ones in computed blocks are valid.
+     */
+    private final int[] mValues;
+    /**
+     * A bitmap of the blocks that have been computed already.
+     */
+    private final AtomicLongArray mComputed;
+    /**
+     * The number of columns to use for the layout of this palette.
+     */
+    private final int mColumns;
+    private final PaletteFingerprint.Cache mFingerprint = new PaletteFingerprint.Cache();
+
+
+    /**
+     * Build a new palette with a custom {@link ColorFactory}.
+     *
+     * @param id
+     *         An identifier for this palette.
+     * @param name
+     *         The name of the palette.
+     * @param colorProvider
+     *         An instance of {@link ColorFactory} that can return a color for each index.
+     * @param count
+     *         The number of colors to generate in this palette.
+     * @param columns
+     *         The number of columns to use in the layout
+     */
+    public LazyFactoryPalette(String id, String name, ColorFactory colorProvider, int count, int columns)
+    {
+        this(id, name, colorProvider, new int[count], columns, false);
+    }
+
+
+    /**
+     * Build a new palette with a custom {@link ColorFactory}.
+     *
+     * @param id
+     *         An identifier for this palette.
+     * @param name
+     *         The name of the palette.
+     * @param colorProvider
+     *         An instance of {@link ColorFactory} that can return a color for each index.
+     * @param count
+     *         The number of colors to generate in this palette.
+     */
+    public LazyFactoryPalette(String id, String name, ColorFactory colorProvider, int count)
+    {
+        this(id, name, colorProvider, count, (int) Math.floor(Math.sqrt(count)));
+    }
+
+
+    private LazyFactoryPalette(String id, String name, ColorFactory colorProvider, int[] values, int columns, boolean computed)
+    {
+        mPaletteId = id;
+        mName = name;
+        mFactory = colorProvider;
+        mValues = values;
+        mColumns = columns;
+        int blocks = (values.length + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        mComputed = new AtomicLongArray((blocks + 63) >>> 6);
+        if (computed)
+        {
+            for (int i = 0; i < blocks; ++i)
+            {
+                markComputed(i);
+            }
+        }
+    }
+
+
+    @Override
+    public String name()
+    {
+        return mName;
+    }
+
+
+    @Override
+    public String id()
+    {
+        return mPaletteId;
+    }
+
+
+    @Override
+    public int numberOfColors()
+    {
+        return mValues.length;
+    }
+
+
+    @Override
+    public int colorAt(int index)
+    {
+        int[] values = mValues;
+        if (index < 0 || index >= values.length)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+
+        int block = index >>> BLOCK_SHIFT;
+        if ((mComputed.get(block >>> 6) & (1L << block)) == 0)
+        {
+            // Other threads might compute the same block at the same time. That's fine, they all write the same values.
+            int start = block << BLOCK_SHIFT;
+            mFactory.fill(values, start, start, Math.min(start + BLOCK_SIZE, values.length), values.length);
+            // the volatile write publishes the values to all threads that see the bit
+            markComputed(block);
+        }
+        return values[index];
+    }
+
+
+    @Override
+    public String nameOfColorAt(int index)
+    {
+        return null;
+    }
+
+
+    @Override
+    public int numberOfColumns()
+    {
+        return mColumns;
+    }
+
+
+    @Override
+    public long fingerprint()
+    {
+        return mFingerprint.of(this);
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return PaletteFingerprint.equals(this, obj);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return PaletteFingerprint.hashCode(this);
+    }
+
+
+    @Override
+    public int describeContents()
+    {
+        return 0;
+    }
+
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags)
+    {
+        dest.writeString(mPaletteId);
+        dest.writeString(mName);
+        dest.writeInt(mColumns);
+        dest.writeInt(mValues.length);
+        ColorFactoryCodec.write(dest, mFactory, flags);
+        if (!ColorFactoryCodec.canWrite(mFactory))
+        {
+            int count = mValues.length;
+            for (int i = 0; i < count; i += BLOCK_SIZE)
+            {
+                // make sure all colors have been computed
+                colorAt(i);
+            }
+            dest.writeIntArray(mValues);
+        }
+    }
+
+
+    private void markComputed(int block)
+    {
+        AtomicLongArray computed = mComputed;
+        int word = block >>> 6;
+        long bit = 1L << block;
+        long current;
+        do
+        {
+            current = computed.get(word);
+        } while ((current & bit) == 0 && !computed.compareAndSet(word, current, current | bit));
+    }
+
+
+    /**
+     * A {@link ColorFactory} that just returns the colors of an array. It's used for palettes that have been unparcelled with all their colors.
+     */
+    private final static class ArrayFactory implements ColorFactory
+    {
+        private final int[] mColors;
+
+
+        private ArrayFactory(int[] colors)
+        {
+            mColors = colors;
+        }
+
+
+        @Override
+        public int colorAt(int index, int count)
+        {
+            return mColors[index];
+        }
+    }
+}
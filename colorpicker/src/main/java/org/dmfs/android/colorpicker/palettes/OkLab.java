@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+/**
+ * Conversions between sRGB and the OKLab color space (see <a href="https://bottosson.github.io/posts/oklab/">https://bottosson.github.io/posts/oklab/</a>).
+ * <p>
+ * The sRGB transfer functions and the cube roots are taken from precomputed tables, so the conversions are cheap enough to be used for large palettes.
+ *
+ * @author Marten Gajda
+ */
+final class OkLab
+{
+    /**
+     * The number of bits of the linear-to-sRGB table index.
+     */
+    private final static int LINEAR_BITS = 14;
+
+    private final static int LINEAR_SIZE = 1 << LINEAR_BITS;
+
+    /**
+     * The number of bits of the cube root table index.
+     */
+    private final static int CBRT_BITS = 10;
+
+    private final static int CBRT_SIZE = 1 << CBRT_BITS;
+
+    /**
+     * Maps 8 bit sRGB components to linear values.
+     */
+    private final static float[] SRGB_TO_LINEAR = new float[256];
+
+    /**
+     * Maps quantized linear values to 8 bit sRGB components.
+     */
+    private final static byte[] LINEAR_TO_SRGB = new byte[LINEAR_SIZE + 1];
+
+    /**
+     * Initial guesses of cube roots in [0..1]. Only the entries from 1/8 up are used.
+     */
+    private final static float[] CBRT = new float[CBRT_SIZE + 1];
+
+    static
+    {
+        for (int i = 0; i < 256; ++i)
+        {
+            double c = i / 255.0;
+            SRGB_TO_LINEAR[i] = (float) (c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4));
+        }
+        for (int i = 0; i <= LINEAR_SIZE; ++i)
+        {
+            double l = (double) i / LINEAR_SIZE;
+            double c = l <= 0.0031308 ? l * 12.92 : 1.055 * Math.pow(l, 1 / 2.4) - 0.055;
+            LINEAR_TO_SRGB[i] = (byte) Math.round(c * 255);
+        }
+        for (int i = 0; i <= CBRT_SIZE; ++i)
+        {
+            CBRT[i] = (float) Math.cbrt((double) i / CBRT_SIZE);
+        }
+    }
+
+
+    private OkLab()
+    {
+        // no instances
+    }
+
+
+    /**
+     * Returns whether the given OKLab color is inside of the sRGB gamut.
+     *
+     * @param lightness
+     *         The L component.
+     * @param a
+     *         The a component.
+     * @param b
+     *         The b component.
+     *
+     * @return <code>true</code> if the color can be represented in sRGB.
+     */
+    static boolean inGamut(float lightness, float a, float b)
+    {
+        float l = lightness + 0.3963377774f * a + 0.2158037573f * b;
+        float m = lightness - 0.1055613458f * a - 0.0638541728f * b;
+        float s = lightness - 0.0894841775f * a - 1.2914855480f * b;
+
+        l = l * l * l;
+        m = m * m * m;
+        s = s * s * s;
+
+        return inUnitRange(4.0767416621f * l - 3.3077115913f * m + 0.2309699292f * s)
+                && inUnitRange(-1.2684380046f * l + 2.6097574011f * m - 0.3413193965f * s)
+                && inUnitRange(-0.0041960863f * l - 0.7034186147f * m + 1.7076147010f * s);
+    }
+
+
+    /**
+     * Converts an OKLab color to an opaque sRGB color, components outside of the gamut are clipped.
+     *
+     * @param lightness
+     *         The L component.
+     * @param a
+     *         The a component.
+     * @param b
+     *         The b component.
+     *
+     * @return The ARGB color.
+     */
+    static int toArgb(float lightness, float a, float b)
+    {
+        float l = lightness + 0.3963377774f * a + 0.2158037573f * b;
+        float m = lightness - 0.1055613458f * a - 0.0638541728f * b;
+        float s = lightness - 0.0894841775f * a - 1.2914855480f * b;
+
+        l = l * l * l;
+        m = m * m * m;
+        s = s * s * s;
+
+        return fromLinear(
+                4.0767416621f * l - 3.3077115913f * m + 0.2309699292f * s,
+                -1.2684380046f * l + 2.6097574011f * m - 0.3413193965f * s,
+                -0.0041960863f * l - 0.7034186147f * m + 1.7076147010f * s);
+    }
+
+
+    /**
+     * Converts linear sRGB components to an opaque sRGB color, components outside of [0..1] are clipped.
+     *
+     * @param r
+     *         The linear red component.
+     * @param g
+     *         The linear green component.
+     * @param b
+     *         The linear blue component.
+     *
+     * @return The ARGB color.
+     */
+    static int fromLinear(float r, float g, float b)
+    {
+        return 0xff000000 | (encode(r) << 16) | (encode(g) << 8) | encode(b);
+    }
+
+
+    /**
+     * Converts an sRGB color to OKLab, ignoring the alpha channel.
+     *
+     * @param argb
+     *         The color.
+     * @param lab
+     *         An array to write the L, a and b components to.
+     */
+    static void fromArgb(int argb, float[] lab)
+    {
+        float r = SRGB_TO_LINEAR[(argb >>> 16) & 0xff];
+        float g = SRGB_TO_LINEAR[(argb >>> 8) & 0xff];
+        float b = SRGB_TO_LINEAR[argb & 0xff];
+
+        float l = cbrt(0.4122214708f * r + 0.5363014883f * g + 0.0514770409f * b);
+        float m = cbrt(0.2119034982f * r + 0.6806995451f * g + 0.1073969566f * b);
+        float s = cbrt(0.0883024619f * r + 0.2817188376f * g + 0.6299787005f * b);
+
+        lab[0] = 0.2104542553f * l + 0.7936177850f * m - 0.0040720468f * s;
+        lab[1] = 1.9779984951f * l - 2.4285922050f * m + 0.4505937099f * s;
+        lab[2] = 0.0259040371f * l + 0.7827717662f * m - 0.8086757660f * s;
+    }
+
+
+    /**
+     * Returns the cube root of a value in [0..1].
+     */
+    private static float cbrt(float x)
+    {
+        if (x <= 0)
+        {
+            return 0;
+        }
+        if (x >= 1)
+        {
+            return 1;
+        }
+        // the table is too coarse for small values, scale them up into the upper part of the table, using cbrt(8x) = 2 cbrt(x)
+        float scale = 1;
+        while (x < 0.125f)
+        {
+            x *= 8;
+            scale *= 0.5f;
+        }
+        float y = CBRT[(int) (x * CBRT_SIZE + 0.5f)];
+        // refine with two Newton iterations
+        y -= (y * y * y - x) / (3 * y * y);
+        y -= (y * y * y - x) / (3 * y * y);
+        return y * scale;
+    }
+
+
+    /**
+     * Converts a linear component to an 8 bit sRGB component, clipping values out of range.
+     */
+    private static int encode(float linear)
+    {
+        if (!(linear > 0))
+        {
+            return 0;
+        }
+        if (linear >= 1)
+        {
+            return 255;
+        }
+        return LINEAR_TO_SRGB[(int) (linear * LINEAR_SIZE + 0.5f)] & 0xff;
+    }
+
+
+    private static boolean inUnitRange(float value)
+    {
+        // allow for some rounding errors
+        return value >= -1e-4f && value <= 1 + 1e-4f;
+    }
+}
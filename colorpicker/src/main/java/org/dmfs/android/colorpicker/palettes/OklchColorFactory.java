@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+/**
+ * A Factory that returns shades of a specific hue in the perceptually uniform OKLCH color space. The lightness is spread evenly across the palette, so
+ * neighbouring colors have the same perceived difference in brightness. Like {@link ColorShadeFactory} this factory leaves out pure black and pure white.
+ * <p>
+ * Colors that can't be represented in sRGB are mapped into the gamut by reducing their chroma while keeping lightness and hue.
+ *
+ * @author Marten Gajda
+ */
+public final class OklchColorFactory implements ColorFactory
+{
+    /**
+     * The number of steps of the binary search for the largest chroma inside of the sRGB gamut.
+     */
+    private final static int GAMUT_STEPS = 10;
+
+    /**
+     * The hue in degrees.
+     */
+    private final float mHue;
+    /**
+     * The requested chroma.
+     */
+    private final float mChroma;
+    /**
+     * The a component of a color with this hue and a chroma of 1.
+     */
+    private final float mCos;
+    /**
+     * The b component of a color with this hue and a chroma of 1.
+     */
+    private final float mSin;
+
+
+    /**
+     * Creates a factory for shades of the given OKLCH hue.
+     *
+     * @param hue
+     *         The hue in degrees.
+     * @param chroma
+     *         The chroma, usually a value between 0 and 0.37. Colors that are out of the sRGB gamut get a smaller chroma.
+     */
+    public OklchColorFactory(float hue, float chroma)
+    {
+        mHue = hue;
+        mChroma = chroma;
+        double radians = Math.toRadians(hue);
+        mCos = (float) Math.cos(radians);
+        mSin = (float) Math.sin(radians);
+    }
+
+
+    @Override
+    public int colorAt(int index, int count)
+    {
+        return color((index + 1f) / (count + 1f));
+    }
+
+
+    @Override
+    public void fill(int[] target, int offset, int start, int end, int count)
+    {
+        float divisor = count + 1f;
+        for (int i = start; i < end; ++i)
+        {
+            target[offset++] = color((i + 1f) / divisor);
+        }
+    }
+
+
+    private int color(float lightness)
+    {
+        float cos = mCos;
+        float sin = mSin;
+        float chroma = mChroma;
+
+        if (!OkLab.inGamut(lightness, chroma * cos, chroma * sin))
+        {
+            // binary search for the largest chroma that's still in gamut
+            float low = 0;
+            float high = chroma;
+            for (int i = 0; i < GAMUT_STEPS; ++i)
+            {
+                float mid = (low + high) * 0.5f;
+                if (OkLab.inGamut(lightness, mid * cos, mid * sin))
+                {
+                    low = mid;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+            chroma = low;
+        }
+        return OkLab.toArgb(lightness, chroma * cos, chroma * sin);
+    }
+
+
+    float hue()
+    {
+        return mHue;
+    }
+
+
+    float chroma()
+    {
+        return mChroma;
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof OklchColorFactory))
+        {
+            return false;
+        }
+        OklchColorFactory other = (OklchColorFactory) obj;
+        return Float.compare(other.mHue, mHue) == 0 && Float.compare(other.mChroma, mChroma) == 0;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return Float.floatToIntBits(mHue) * 31 + Float.floatToIntBits(mChroma);
+    }
+}
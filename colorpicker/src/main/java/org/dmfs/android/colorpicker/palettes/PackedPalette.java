@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.io.File;
+import java.io.IOException;
+
+
+/**
+ * A {@link Palette} in a {@link PalettePack}. Colors and names are read from the mapped file on demand, only the id and the name of the palette are kept once
+ * they have been read.
+ * <p>
+ * When parceled, only the path of the pack and the index of the palette are written.
+ *
+ * @author Marten Gajda
+ */
+public final class PackedPalette implements Palette
+{
+    public static final Parcelable.Creator<PackedPalette> CREATOR = new Parcelable.Creator<PackedPalette>()
+    {
+        @Override
+        public PackedPalette createFromParcel(Parcel in)
+        {
+            String path = in.readString();
+            int index = in.readInt();
+            try
+            {
+                return (PackedPalette) PalettePack.open(new File(path)).palette(index);
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException("Can't open palette pack " + path, e);
+            }
+        }
+
+
+        @Override
+        public PackedPalette[] newArray(int size)
+        {
+            return new PackedPalette[size];
+        }
+    };
+
+    private final PalettePack mPack;
+    private final int mIndex;
+    private final int mColumns;
+    private final int mCount;
+    /**
+     * The offset of the colors in the pack.
+     */
+    private final int mColors;
+    /**
+     * The offset of the color name table in the pack or -1.
+     */
+    private final int mNames;
+
+    private String mPaletteId;
+    private String mPaletteName;
+    private final PaletteFingerprint.Cache mFingerprint = new PaletteFingerprint.Cache();
+
+
+    PackedPalette(PalettePack pack, int index, int columns, int count, int colors, int names)
+    {
+        mPack = pack;
+        mIndex = index;
+        mColumns = columns;
+        mCount = count;
+        mColors = colors;
+        mNames = names;
+    }
+
+
+    @Override
+    public String name()
+    {
+        // racy, but the result is always the same
+        String name = mPaletteName;
+        if (name == null)
+        {
+            name = mPack.string(mPack.intAt(PalettePack.HEADER_SIZE + mIndex * PalettePack.ENTRY_SIZE + PalettePack.ENTRY_NAME));
+            mPaletteName = name;
+        }
+        return name;
+    }
+
+
+    @Override
+    public String id()
+    {
+        String id = mPaletteId;
+        if (id == null)
+        {
+            id = mPack.string(mPack.intAt(PalettePack.HEADER_SIZE + mIndex * PalettePack.ENTRY_SIZE + PalettePack.ENTRY_ID));
+            mPaletteId = id;
+        }
+        return id;
+    }
+
+
+    @Override
+    public int numberOfColors()
+    {
+        return mCount;
+    }
+
+
+    @Override
+    public int colorAt(int index)
+    {
+        if (index < 0 || index >= mCount)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return mPack.intAt(mColors + index * 4);
+    }
+
+
+    @Override
+    public String nameOfColorAt(int index)
+    {
+        if (index < 0 || index >= mCount)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return mNames == -1 ? null : mPack.string(mPack.intAt(mNames + index * 4));
+    }
+
+
+    @Override
+    public int numberOfColumns()
+    {
+        return mColumns;
+    }
+
+
+    @Override
+    public long fingerprint()
+    {
+        return mFingerprint.of(this);
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return PaletteFingerprint.equals(this, obj);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return PaletteFingerprint.hashCode(this);
+    }
+
+
+    @Override
+    public int describeContents()
+    {
+        return 0;
+    }
+
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags)
+    {
+        dest.writeString(mPack.path());
+        dest.writeInt(mIndex);
+    }
+}
@@ -22,6 +22,12 @@ import android.os.Parcelable;
 
 /**
  * Interface of a color palette.
+ * <p>
+ * Palettes are values, two palettes are equal if they have the same id, name, number of columns, colors and color names, regardless of their
+ * implementation. For instance, a {@link RandomPalette} equals an {@link ArrayPalette} with the same id, name, columns and colors. Implementations should
+ * implement {@link Object#equals(Object)} and {@link Object#hashCode()} with {@link PaletteFingerprint#equals(Palette, Object)} and {@link
+ * PaletteFingerprint#hashCode(Palette)} to follow this contract. Note that both calls may have to load or generate all colors of a palette, use an identity
+ * based collection if that's not desired.
  *
  * @author Marten Gajda
  */
@@ -74,4 +80,18 @@ public interface Palette extends Parcelable
      * @return The number of columns.
      */
     int numberOfColumns();
+
+    /**
+     * Returns a 64 bit fingerprint of the content of this palette, i.e. its id, name, number of columns, colors and color names. Palettes with the same content
+     * have the same fingerprint, regardless of their implementation, so it can be used to key caches by content.
+     * <p>
+     * The default implementation calculates the fingerprint with {@link PaletteFingerprint#of(Palette)} on every call. Implementations should calculate it
+     * only once, for instance with a {@link PaletteFingerprint.Cache}.
+     *
+     * @return The fingerprint.
+     */
+    default long fingerprint()
+    {
+        return PaletteFingerprint.of(this);
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import java.util.Arrays;
+
+
+/**
+ * Collects colors and their names in growable arrays and builds an {@link ArrayPalette} from them. Used by the palette readers.
+ *
+ * @author Marten Gajda
+ */
+final class PaletteBuilder
+{
+    private int[] mColors = new int[64];
+    /**
+     * The names of the colors, only allocated once the first named color has been added.
+     */
+    private String[] mNames;
+    private int mSize;
+
+
+    /**
+     * Append a color.
+     *
+     * @param color
+     *         The color.
+     * @param name
+     *         The name of the color or <code>null</code>.
+     */
+    void add(int color, String name)
+    {
+        int size = mSize;
+        if (size == mColors.length)
+        {
+            mColors = Arrays.copyOf(mColors, size * 2);
+            if (mNames != null)
+            {
+                mNames = Arrays.copyOf(mNames, size * 2);
+            }
+        }
+        mColors[size] = color;
+        if (name != null)
+        {
+            if (mNames == null)
+            {
+                mNames = new String[mColors.length];
+            }
+            mNames[size] = name;
+        }
+        mSize = size + 1;
+    }
+
+
+    /**
+     * Build an {@link ArrayPalette} with the colors added so far.
+     *
+     * @param id
+     *         The id of the palette.
+     * @param name
+     *         The name of the palette.
+     * @param columns
+     *         The number of columns or a value &lt;= 0 to use a square layout if possible.
+     *
+     * @return The {@link ArrayPalette}.
+     */
+    ArrayPalette build(String id, String name, int columns)
+    {
+        int size = mSize;
+        int[] colors = size == mColors.length ? mColors : Arrays.copyOf(mColors, size);
+        String[] names = mNames == null ? null : size == mNames.length ? mNames : Arrays.copyOf(mNames, size);
+        if (columns <= 0)
+        {
+            return new ArrayPalette(id, name, colors, names);
+        }
+        return new ArrayPalette(id, name, colors, columns, names);
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * An index of the colors of a number of {@link Palette}s that finds the colors closest to any given color.
+ * <p>
+ * Colors are compared in the perceptually uniform OKLab space and kept in a k-d tree, so queries take logarithmic time on average. The OKLab coordinates of
+ * each palette are cached, so {@link #update(Palette...)} only needs to convert the colors of palettes that haven't been indexed before.
+ * <p>
+ * Queries are thread-safe and may run concurrently with {@link #update(Palette...)}.
+ *
+ * @author Marten Gajda
+ */
+public final class PaletteColorIndex
+{
+    /**
+     * The OKLab coordinates of each indexed palette.
+     */
+    private final Map<Palette, float[]> mCoordinates = new IdentityHashMap<>();
+
+    /**
+     * The current tree.
+     */
+    private volatile Tree mTree;
+
+
+    /**
+     * Creates an index of the colors of the given {@link Palette}s.
+     *
+     * @param palettes
+     *         The {@link Palette}s to index.
+     */
+    public PaletteColorIndex(Palette... palettes)
+    {
+        update(palettes);
+    }
+
+
+    /**
+     * Replaces the indexed palettes with the given ones. Colors of palettes that were indexed before are not converted again.
+     * <p>
+     * Note, palettes are identified by instance, so this doesn't need to look at the colors of palettes that have been indexed before. Since palettes are
+     * immutable, a palette with changed colors is a different instance.
+     *
+     * @param palettes
+     *         The {@link Palette}s to index.
+     */
+    public synchronized void update(Palette... palettes)
+    {
+        Map<Palette, float[]> coordinates = mCoordinates;
+        Map<Palette, float[]> retained = new IdentityHashMap<>();
+        int total = 0;
+        for (Palette palette : palettes)
+        {
+            float[] lab = coordinates.get(palette);
+            if (lab == null)
+            {
+                lab = convert(palette);
+            }
+            retained.put(palette, lab);
+            total += palette.numberOfColors();
+        }
+        coordinates.clear();
+        coordinates.putAll(retained);
+
+        mTree = new Tree(palettes.clone(), coordinates, total);
+    }
+
+
+    /**
+     * Returns the color that's closest to the given color.
+     *
+     * @param argb
+     *         The color to search for, the alpha channel is ignored.
+     *
+     * @return A {@link ColorMatch} or <code>null</code> if the index is empty.
+     */
+    public ColorMatch nearest(int argb)
+    {
+        List<ColorMatch> result = nearest(argb, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+
+    /**
+     * Returns the <code>k</code> colors that are closest to the given color.
+     *
+     * @param argb
+     *         The color to search for, the alpha channel is ignored.
+     * @param k
+     *         The maximum number of colors to return.
+     *
+     * @return A {@link List} of up to <code>k</code> {@link ColorMatch}es, ordered by distance, closest first.
+     */
+    public List<ColorMatch> nearest(int argb, int k)
+    {
+        Tree tree = mTree;
+        if (k <= 0 || tree.mSize == 0)
+        {
+            return Collections.emptyList();
+        }
+        float[] lab = new float[3];
+        OkLab.fromArgb(argb, lab);
+        return tree.nearest(lab, Math.min(k, tree.mSize));
+    }
+
+
+    private static float[] convert(Palette palette)
+    {
+        int count = palette.numberOfColors();
+        float[] result = new float[count * 3];
+        float[] lab = new float[3];
+        for (int i = 0; i < count; ++i)
+        {
+            OkLab.fromArgb(palette.colorAt(i), lab);
+            System.arraycopy(lab, 0, result, i * 3, 3);
+        }
+        return result;
+    }
+
+
+    /**
+     * An immutable k-d tree. The nodes are stored in implicit form, the root of a range is the element in the middle of the range, the left subtree is in
+     * the lower half and the right subtree is in the upper half. The split axis cycles with the depth.
+     */
+    private final static class Tree
+    {
+        private final Palette[] mPalettes;
+        private final int mSize;
+        /**
+         * The OKLab coordinates of the nodes.
+         */
+        private final float[] mLab;
+        /**
+         * The index of the palette of each node in {@link #mPalettes}.
+         */
+        private final int[] mPaletteIndex;
+        /**
+         * The index of the color of each node in its palette.
+         */
+        private final int[] mColorIndex;
+
+
+        private Tree(Palette[] palettes, Map<Palette, float[]> coordinates, int size)
+        {
+            mPalettes = palettes;
+            mSize = size;
+
+            float[] lab = new float[size * 3];
+            int[] paletteIndex = new int[size];
+            int[] colorIndex = new int[size];
+            int pos = 0;
+            for (int p = 0; p < palettes.length; ++p)
+            {
+                float[] paletteLab = coordinates.get(palettes[p]);
+                int count = paletteLab.length / 3;
+                System.arraycopy(paletteLab, 0, lab, pos * 3, paletteLab.length);
+                for (int i = 0; i < count; ++i)
+                {
+                    paletteIndex[pos + i] = p;
+                    colorIndex[pos + i] = i;
+                }
+                pos += count;
+            }
+
+            mLab = lab;
+            mPaletteIndex = paletteIndex;
+            mColorIndex = colorIndex;
+            build(0, size, 0);
+        }
+
+
+        /**
+         * Arrange the nodes in the range <code>[from, to)</code> as a subtree.
+         */
+        private void build(int from, int to, int axis)
+        {
+            while (to - from > 1)
+            {
+                int mid = (from + to) >>> 1;
+                select(from, to - 1, mid, axis);
+                int next = axis == 2 ? 0 : axis + 1;
+                build(from, mid, next);
+                // continue with the right subtree
+                from = mid + 1;
+                axis = next;
+            }
+        }
+
+
+        /**
+         * Quickselect, moves the node with the <code>k</code>-th smallest coordinate on the given axis to position <code>k</code>, with smaller ones before
+         * and larger ones after it.
+         */
+        private void select(int left, int right, int k, int axis)
+        {
+            float[] lab = mLab;
+            while (right > left)
+            {
+                float pivot = lab[((left + right) >>> 1) * 3 + axis];
+                // three-way partition, so many equal coordinates (like the greys on the a and b axes) don't degrade performance
+                int lt = left;
+                int gt = right;
+                int i = left;
+                while (i <= gt)
+                {
+                    float value = lab[i * 3 + axis];
+                    if (value < pivot)
+                    {
+                        swap(lt++, i++);
+                    }
+                    else if (value > pivot)
+                    {
+                        swap(i, gt--);
+                    }
+                    else
+                    {
+                        ++i;
+                    }
+                }
+
+                if (k < lt)
+                {
+                    right = lt - 1;
+                }
+                else if (k > gt)
+                {
+                    left = gt + 1;
+                }
+                else
+                {
+                    return;
+                }
+            }
+        }
+
+
+        private void swap(int a, int b)
+        {
+            if (a == b)
+            {
+                return;
+            }
+            float[] lab = mLab;
+            for (int i = 0; i < 3; ++i)
+            {
+                float t = lab[a * 3 + i];
+                lab[a * 3 + i] = lab[b * 3 + i];
+                lab[b * 3 + i] = t;
+            }
+            int t = mPaletteIndex[a];
+            mPaletteIndex[a] = mPaletteIndex[b];
+            mPaletteIndex[b] = t;
+            t = mColorIndex[a];
+            mColorIndex[a] = mColorIndex[b];
+            mColorIndex[b] = t;
+        }
+
+
+        private List<ColorMatch> nearest(float[] target, int k)
+        {
+            // a max-heap of the best candidates so far, ordered by squared distance
+            Candidates candidates = new Candidates(k);
+            search(0, mSize, 0, target, candidates);
+
+            int count = candidates.mCount;
+            ColorMatch[] matches = new ColorMatch[count];
+            // take from the heap in reverse order to get the closest ones first
+            for (int i = count - 1; i >= 0; --i)
+            {
+                int node = candidates.mNodes[0];
+                matches[i] = new ColorMatch(mPalettes[mPaletteIndex[node]], mColorIndex[node], (float) Math.sqrt(candidates.mDistances[0]));
+                candidates.pop();
+            }
+            List<ColorMatch> result = new ArrayList<>(count);
+            Collections.addAll(result, matches);
+            return result;
+        }
+
+
+        private void search(int from, int to, int axis, float[] target, Candidates candidates)
+        {
+            if (from >= to)
+            {
+                return;
+            }
+            float[] lab = mLab;
+            int mid = (from + to) >>> 1;
+            float dl = target[0] - lab[mid * 3];
+            float da = target[1] - lab[mid * 3 + 1];
+            float db = target[2] - lab[mid * 3 + 2];
+            candidates.offer(mid, dl * dl + da * da + db * db);
+
+            float delta = target[axis] - lab[mid * 3 + axis];
+            int next = axis == 2 ? 0 : axis + 1;
+            // search the side of the target first, the other side only if it could contain anything closer
+            if (delta < 0)
+            {
+                search(from, mid, next, target, candidates);
+                if (delta * delta < candidates.worst())
+                {
+                    search(mid + 1, to, next, target, candidates);
+                }
+            }
+            else
+            {
+                search(mid + 1, to, next, target, candidates);
+                if (delta * delta < candidates.worst())
+                {
+                    search(from, mid, next, target, candidates);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * A bounded max-heap of nodes ordered by distance.
+     */
+    private final static class Candidates
+    {
+        private final int[] mNodes;
+        private final float[] mDistances;
+        private int mCount;
+
+
+        private Candidates(int capacity)
+        {
+            mNodes = new int[capacity];
+            mDistances = new float[capacity];
+        }
+
+
+        /**
+         * Returns the largest distance in the heap or {@link Float#POSITIVE_INFINITY} if the heap isn't full yet.
+         */
+        private float worst()
+        {
+            return mCount < mNodes.length ? Float.POSITIVE_INFINITY : mDistances[0];
+        }
+
+
+        private void offer(int node, float distance)
+        {
+            int[] nodes = mNodes;
+            float[] distances = mDistances;
+            if (mCount < nodes.length)
+            {
+                // sift up
+                int i = mCount++;
+                while (i > 0)
+                {
+                    int parent = (i - 1) >>> 1;
+                    if (distances[parent] >= distance)
+                    {
+                        break;
+                    }
+                    nodes[i] = nodes[parent];
+                    distances[i] = distances[parent];
+                    i = parent;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
+            }
+            else if (distance < distances[0])
+            {
+                siftDown(node, distance);
+            }
+        }
+
+
+        private void pop()
+        {
+            int last = --mCount;
+            if (last > 0)
+            {
+                siftDown(mNodes[last], mDistances[last]);
+            }
+        }
+
+
+        /**
+         * Replace the root with the given node and restore the heap property.
+         */
+        private void siftDown(int node, float distance)
+        {
+            int[] nodes = mNodes;
+            float[] distances = mDistances;
+            int count = mCount;
+            int i = 0;
+            while (true)
+            {
+                int child = 2 * i + 1;
+                if (child >= count)
+                {
+                    break;
+                }
+                if (child + 1 < count && distances[child + 1] > distances[child])
+                {
+                    child++;
+                }
+                if (distances[child] <= distance)
+                {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+        }
+    }
+}
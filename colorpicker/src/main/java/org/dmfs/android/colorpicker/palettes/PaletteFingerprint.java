@@ -0,0 +1,277 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+/**
+ * Content fingerprints and content equality of {@link Palette}s. Two palettes have the same content if they have the same id, name, number of columns,
+ * colors and color names, regardless of their implementation.
+ * <p>
+ * Fingerprints are stable, the same content always results in the same fingerprint, even across processes and library versions that don't change the
+ * algorithm.
+ *
+ * @author Marten Gajda
+ */
+public final class PaletteFingerprint
+{
+    private final static long SEED = 0x6a09e667f3bcc909L;
+
+    private final static long K1 = 0x9e3779b97f4a7c15L;
+
+    private final static long K2 = 0xc2b2ae3d27d4eb4fL;
+
+    /**
+     * The value that represents <code>null</code> strings. It's mixed in instead of the length, which can't be negative.
+     */
+    private final static int NULL = -1;
+
+
+    private PaletteFingerprint()
+    {
+    }
+
+
+    /**
+     * Calculate the fingerprint of the given palette. This takes time proportional to the number of colors, implementations of {@link Palette} should
+     * calculate it only once.
+     *
+     * @param palette
+     *         A {@link Palette}.
+     *
+     * @return The 64 bit fingerprint of the content of the palette.
+     */
+    public static long of(Palette palette)
+    {
+        long hash = SEED;
+        hash = mix(hash, palette.id());
+        hash = mix(hash, palette.name());
+        hash = mix(hash, palette.numberOfColumns());
+        int count = palette.numberOfColors();
+        hash = mix(hash, count);
+        for (int i = 0; i < count; ++i)
+        {
+            hash = mix(hash, palette.colorAt(i));
+        }
+        for (int i = 0; i < count; ++i)
+        {
+            hash = mix(hash, palette.nameOfColorAt(i));
+        }
+        return finish(hash);
+    }
+
+
+    /**
+     * Calculate the fingerprint of the appearance of the given palette, i.e. its number of columns and its colors. Unlike {@link #of(Palette)} this ignores
+     * the id and all names, so palettes that look the same have the same fingerprint, even if their names are localized.
+     *
+     * @param palette
+     *         A {@link Palette}.
+     *
+     * @return The 64 bit fingerprint of the colors of the palette.
+     */
+    public static long ofColors(Palette palette)
+    {
+        long hash = SEED;
+        hash = mix(hash, palette.numberOfColumns());
+        int count = palette.numberOfColors();
+        hash = mix(hash, count);
+        for (int i = 0; i < count; ++i)
+        {
+            hash = mix(hash, palette.colorAt(i));
+        }
+        return finish(hash);
+    }
+
+
+    /**
+     * Returns whether the given palettes have the same content. The fingerprints are compared first, so this is fast for palettes that differ, as long as
+     * their fingerprints have been cached.
+     *
+     * @param palette
+     *         A {@link Palette}.
+     * @param other
+     *         Another {@link Palette}.
+     *
+     * @return <code>true</code> if both palettes have the same content.
+     */
+    public static boolean contentEquals(Palette palette, Palette other)
+    {
+        if (palette == other)
+        {
+            return true;
+        }
+
+        int count = palette.numberOfColors();
+        if (palette.fingerprint() != other.fingerprint()
+                || count != other.numberOfColors()
+                || palette.numberOfColumns() != other.numberOfColumns()
+                || !equal(palette.id(), other.id())
+                || !equal(palette.name(), other.name()))
+        {
+            return false;
+        }
+
+        for (int i = 0; i < count; ++i)
+        {
+            if (palette.colorAt(i) != other.colorAt(i))
+            {
+                return false;
+            }
+        }
+        for (int i = 0; i < count; ++i)
+        {
+            if (!equal(palette.nameOfColorAt(i), other.nameOfColorAt(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns whether the given palette has the same content as the given object. Implementations of {@link Palette} can delegate {@link
+     * Object#equals(Object)} to this method.
+     *
+     * @param palette
+     *         A {@link Palette}.
+     * @param obj
+     *         Any object.
+     *
+     * @return <code>true</code> if <code>obj</code> is a {@link Palette} with the same content.
+     */
+    public static boolean equals(Palette palette, Object obj)
+    {
+        return obj instanceof Palette && contentEquals(palette, (Palette) obj);
+    }
+
+
+    /**
+     * Returns a hash code of the content of the given palette. Implementations of {@link Palette} can delegate {@link Object#hashCode()} to this method.
+     *
+     * @param palette
+     *         A {@link Palette}.
+     *
+     * @return The hash code.
+     */
+    public static int hashCode(Palette palette)
+    {
+        return hashCode(palette.fingerprint());
+    }
+
+
+    /**
+     * Returns a hash code for a fingerprint.
+     *
+     * @param fingerprint
+     *         A fingerprint.
+     *
+     * @return The hash code.
+     */
+    public static int hashCode(long fingerprint)
+    {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+
+
+    /**
+     * Calculates the fingerprint of a palette once and returns the cached value afterwards. Implementations of {@link Palette} can keep one of these and
+     * delegate {@link Palette#fingerprint()} to it. It's safe to use on multiple threads.
+     */
+    public static final class Cache
+    {
+        /**
+         * The cached fingerprint or <code>0</code> if it hasn't been calculated yet.
+         */
+        private volatile long mFingerprint;
+
+
+        /**
+         * Returns the fingerprint of the given palette, calculating it on the first call.
+         *
+         * @param palette
+         *         The {@link Palette} that owns this cache.
+         *
+         * @return The fingerprint.
+         */
+        public long of(Palette palette)
+        {
+            long fingerprint = mFingerprint;
+            if (fingerprint == 0)
+            {
+                fingerprint = PaletteFingerprint.of(palette);
+                mFingerprint = fingerprint;
+            }
+            return fingerprint;
+        }
+
+
+        /**
+         * Forget the cached fingerprint. Call this when the content of the palette changes.
+         */
+        public void reset()
+        {
+            mFingerprint = 0;
+        }
+    }
+
+
+    private static long mix(long hash, int value)
+    {
+        hash ^= (value & 0xffffffffL) * K1;
+        return Long.rotateLeft(hash, 31) * K2;
+    }
+
+
+    private static long mix(long hash, String value)
+    {
+        if (value == null)
+        {
+            return mix(hash, NULL);
+        }
+        int length = value.length();
+        hash = mix(hash, length);
+        // mix in the characters themselves, String.hashCode() would limit names to 32 bits of entropy
+        int i = 0;
+        for (; i + 1 < length; i += 2)
+        {
+            hash = mix(hash, value.charAt(i) | value.charAt(i + 1) << 16);
+        }
+        if (i < length)
+        {
+            hash = mix(hash, value.charAt(i));
+        }
+        return hash;
+    }
+
+
+    /**
+     * The SplitMix64 finalizer, so every input bit affects all bits of the fingerprint.
+     */
+    private static long finish(long hash)
+    {
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+
+    private static boolean equal(String a, String b)
+    {
+        return a == null ? b == null : a.equals(b);
+    }
+}
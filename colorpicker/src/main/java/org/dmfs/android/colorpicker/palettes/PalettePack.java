@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+
+/**
+ * A memory mapped file containing any number of palettes, as written by {@link PalettePackWriter}.
+ * <p>
+ * Opening a pack only maps the file and checks the header, so it takes constant time and heap regardless of the size of the pack. The palettes returned by
+ * {@link #palette(int)} read their colors directly from the mapped file, so only the pages of palettes that are actually used are ever loaded.
+ * <p>
+ * The file format is big endian and has the following layout:
+ * <pre>
+ * header:     int magic "CPAK", int version, int number of palettes, int offset of the string table
+ * directory:  for each palette: int id, int name, int columns, int number of colors, int offset of the colors, int offset of the color names or -1
+ * colors:     the ARGB values of each palette
+ * color names: for each palette with names, one string per color, -1 for colors without name
+ * strings:    for each string: int length in bytes, the UTF-8 bytes
+ * </pre>
+ * Strings are referenced by their offset relative to the start of the string table, all other offsets are absolute.
+ *
+ * @author Marten Gajda
+ */
+public final class PalettePack
+{
+    final static int MAGIC = 0x4350414b; // "CPAK"
+    final static int VERSION = 1;
+    final static int HEADER_SIZE = 16;
+    final static int ENTRY_SIZE = 24;
+
+    final static int ENTRY_ID = 0;
+    final static int ENTRY_NAME = 4;
+    final static int ENTRY_COLUMNS = 8;
+    final static int ENTRY_COUNT = 12;
+    final static int ENTRY_COLORS = 16;
+    final static int ENTRY_NAMES = 20;
+
+    final static Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The packs that are currently open, so palettes that are read from a parcel share the mapping.
+     */
+    private final static Map<String, WeakReference<PalettePack>> OPEN_PACKS = new HashMap<>();
+
+    private final String mPath;
+    /**
+     * The length and modification time of the file when it was opened, to detect packs that have been rewritten since.
+     */
+    private final long mLength;
+    private final long mLastModified;
+    private final ByteBuffer mBuffer;
+    private final int mSize;
+    private final int mStrings;
+
+
+    private PalettePack(String path, long length, long lastModified, ByteBuffer buffer) throws IOException
+    {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+        {
+            throw new IOException("Not a palette pack " + path);
+        }
+        if (buffer.getInt(4) != VERSION)
+        {
+            throw new IOException("Unsupported palette pack version " + buffer.getInt(4));
+        }
+        int size = buffer.getInt(8);
+        int strings = buffer.getInt(12);
+        if (size < 0 || (long) HEADER_SIZE + (long) size * ENTRY_SIZE > strings || strings > buffer.limit())
+        {
+            throw new IOException("Corrupt palette pack " + path);
+        }
+        mPath = path;
+        mLength = length;
+        mLastModified = lastModified;
+        mBuffer = buffer;
+        mSize = size;
+        mStrings = strings;
+    }
+
+
+    /**
+     * Opens the given palette pack. If the pack is already open and the file has not been modified since, the existing instance is returned.
+     *
+     * @param file
+     *         The file to open.
+     *
+     * @return The {@link PalettePack}.
+     *
+     * @throws IOException
+     *         If the file can't be read or isn't a palette pack.
+     */
+    public static PalettePack open(File file) throws IOException
+    {
+        String path = file.getAbsolutePath();
+        synchronized (OPEN_PACKS)
+        {
+            // drop the packs that have been collected, so the map doesn't grow with every file that has ever been opened
+            Iterator<WeakReference<PalettePack>> iterator = OPEN_PACKS.values().iterator();
+            while (iterator.hasNext())
+            {
+                if (iterator.next().get() == null)
+                {
+                    iterator.remove();
+                }
+            }
+
+            long length = file.length();
+            long lastModified = file.lastModified();
+            WeakReference<PalettePack> reference = OPEN_PACKS.get(path);
+            PalettePack pack = reference == null ? null : reference.get();
+            if (pack == null || pack.mLength != length || pack.mLastModified != lastModified)
+            {
+                RandomAccessFile raf = new RandomAccessFile(path, "r");
+                try
+                {
+                    FileChannel channel = raf.getChannel();
+                    // the mapping stays valid after the channel has been closed
+                    pack = new PalettePack(path, length, lastModified, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+                finally
+                {
+                    raf.close();
+                }
+                OPEN_PACKS.put(path, new WeakReference<>(pack));
+            }
+            return pack;
+        }
+    }
+
+
+    /**
+     * Returns the absolute path of the file of this pack.
+     *
+     * @return The path.
+     */
+    public String path()
+    {
+        return mPath;
+    }
+
+
+    /**
+     * Returns the number of palettes in this pack.
+     *
+     * @return The number of palettes.
+     */
+    public int size()
+    {
+        return mSize;
+    }
+
+
+    /**
+     * Returns the palette at the given index. The colors and names are read on demand.
+     *
+     * @param index
+     *         The index of the palette.
+     *
+     * @return A {@link Palette}.
+     */
+    public Palette palette(int index)
+    {
+        if (index < 0 || index >= mSize)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        ByteBuffer buffer = mBuffer;
+        int entry = HEADER_SIZE + index * ENTRY_SIZE;
+        int count = buffer.getInt(entry + ENTRY_COUNT);
+        int colors = buffer.getInt(entry + ENTRY_COLORS);
+        int names = buffer.getInt(entry + ENTRY_NAMES);
+        if (count < 0 || colors < 0 || (long) colors + count * 4L > mStrings || names != -1 && (names < 0 || (long) names + count * 4L > mStrings))
+        {
+            throw new IllegalStateException("Corrupt palette pack " + mPath);
+        }
+        return new PackedPalette(this, index, buffer.getInt(entry + ENTRY_COLUMNS), count, colors, names);
+    }
+
+
+    /**
+     * Returns the index of the palette with the given id. This needs to read all palette ids, so callers should store the result.
+     *
+     * @param id
+     *         The id of the palette.
+     *
+     * @return The index of the palette or -1 if there is no such palette in this pack.
+     */
+    public int indexOf(String id)
+    {
+        for (int i = 0; i < mSize; ++i)
+        {
+            if (id.equals(string(mBuffer.getInt(HEADER_SIZE + i * ENTRY_SIZE + ENTRY_ID))))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    int intAt(int offset)
+    {
+        return mBuffer.getInt(offset);
+    }
+
+
+    /**
+     * Returns the string at the given offset in the string table, or <code>null</code> if the offset is -1.
+     */
+    String string(int offset)
+    {
+        if (offset == -1)
+        {
+            return null;
+        }
+        // use a duplicate, so concurrent reads don't interfere
+        ByteBuffer buffer = mBuffer.duplicate();
+        // the string table is not checked when the pack is opened, so a truncated or corrupt file is detected here
+        long position = (long) mStrings + offset;
+        if (offset < 0 || position + 4 > buffer.limit())
+        {
+            throw new IllegalStateException("Corrupt palette pack " + mPath);
+        }
+        int length = buffer.getInt((int) position);
+        if (length < 0 || position + 4 + length > buffer.limit())
+        {
+            throw new IllegalStateException("Corrupt palette pack " + mPath);
+        }
+        byte[] bytes = new byte[length];
+        buffer.position((int) position + 4);
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Writes {@link Palette}s to a file that can be opened with {@link PalettePack#open(File)}. Equal strings are stored only once.
+ *
+ * @author Marten Gajda
+ */
+public final class PalettePackWriter
+{
+    private PalettePackWriter()
+    {
+        // no instances
+    }
+
+
+    /**
+     * Write the given palettes to a file.
+     *
+     * @param file
+     *         The file to write to. An existing file will be overwritten.
+     * @param palettes
+     *         The {@link Palette}s to write.
+     *
+     * @throws IOException
+     *         If the file can't be written.
+     */
+    public static void write(File file, Palette... palettes) throws IOException
+    {
+        OutputStream out = new FileOutputStream(file);
+        try
+        {
+            write(out, palettes);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+
+    /**
+     * Write the given palettes to an {@link OutputStream}. The stream is flushed but not closed.
+     *
+     * @param out
+     *         The {@link OutputStream} to write to.
+     * @param palettes
+     *         The {@link Palette}s to write.
+     *
+     * @throws IOException
+     *         If the stream can't be written.
+     */
+    public static void write(OutputStream out, Palette... palettes) throws IOException
+    {
+        StringTable strings = new StringTable();
+        int[] names = new int[palettes.length];
+
+        // compute the layout
+        long offset = PalettePack.HEADER_SIZE + (long) palettes.length * PalettePack.ENTRY_SIZE;
+        int[] colors = new int[palettes.length];
+        for (int i = 0; i < palettes.length; ++i)
+        {
+            colors[i] = checkOffset(offset);
+            offset += palettes[i].numberOfColors() * 4L;
+        }
+        for (int i = 0; i < palettes.length; ++i)
+        {
+            names[i] = hasNames(palettes[i]) ? checkOffset(offset) : -1;
+            if (names[i] != -1)
+            {
+                offset += palettes[i].numberOfColors() * 4L;
+            }
+        }
+        int stringTable = checkOffset(offset);
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 16 * 1024));
+        data.writeInt(PalettePack.MAGIC);
+        data.writeInt(PalettePack.VERSION);
+        data.writeInt(palettes.length);
+        data.writeInt(stringTable);
+
+        for (int i = 0; i < palettes.length; ++i)
+        {
+            Palette palette = palettes[i];
+            data.writeInt(strings.add(palette.id()));
+            data.writeInt(strings.add(palette.name()));
+            data.writeInt(palette.numberOfColumns());
+            data.writeInt(palette.numberOfColors());
+            data.writeInt(colors[i]);
+            data.writeInt(names[i]);
+        }
+
+        for (Palette palette : palettes)
+        {
+            for (int i = 0, count = palette.numberOfColors(); i < count; ++i)
+            {
+                data.writeInt(palette.colorAt(i));
+            }
+        }
+
+        for (int p = 0; p < palettes.length; ++p)
+        {
+            if (names[p] != -1)
+            {
+                Palette palette = palettes[p];
+                for (int i = 0, count = palette.numberOfColors(); i < count; ++i)
+                {
+                    data.writeInt(strings.add(palette.nameOfColorAt(i)));
+                }
+            }
+        }
+
+        strings.writeTo(data);
+        data.flush();
+    }
+
+
+    private static boolean hasNames(Palette palette)
+    {
+        for (int i = 0, count = palette.numberOfColors(); i < count; ++i)
+        {
+            if (palette.nameOfColorAt(i) != null)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static int checkOffset(long offset) throws IOException
+    {
+        if (offset > Integer.MAX_VALUE)
+        {
+            throw new IOException("Palette pack too large");
+        }
+        return (int) offset;
+    }
+
+
+    /**
+     * The string table, which stores each distinct string once.
+     */
+    private final static class StringTable
+    {
+        private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream(4096);
+        private final DataOutputStream mData = new DataOutputStream(mBytes);
+        private final Map<String, Integer> mOffsets = new HashMap<>();
+
+
+        /**
+         * Adds a string to the table and returns its offset or -1 if the string is <code>null</code>.
+         */
+        int add(String string) throws IOException
+        {
+            if (string == null)
+            {
+                return -1;
+            }
+            Integer offset = mOffsets.get(string);
+            if (offset == null)
+            {
+                offset = mBytes.size();
+                byte[] bytes = string.getBytes(PalettePack.UTF8);
+                mData.writeInt(bytes.length);
+                mData.write(bytes);
+                mOffsets.put(string, offset);
+            }
+            return offset;
+        }
+
+
+        void writeTo(OutputStream out) throws IOException
+        {
+            mBytes.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.support.v4.util.LruCache;
+import android.text.TextUtils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * A bounded cache of generated palettes. Palettes are keyed by their id, name, {@link ColorFactory}, number of colors and number of columns, so requesting
+ * the same palette again returns the instance that has been built before.
+ * <p>
+ * The built-in {@link ColorFactory}s compare by their parameters, custom factories should implement {@link Object#equals(Object)} and {@link
+ * Object#hashCode()} to benefit from this cache.
+ * <p>
+ * To release memory under pressure, a registry has to be registered with {@link #register(Context)}. The {@link
+ * org.dmfs.android.colorpicker.ColorPickerDialogFragment} does that for {@link #DEFAULT}.
+ *
+ * @author Marten Gajda
+ */
+public final class PaletteRegistry implements ComponentCallbacks2
+{
+    /**
+     * A process wide default registry.
+     */
+    public final static PaletteRegistry DEFAULT = new PaletteRegistry(64);
+
+    private final LruCache<Key, Palette> mCache;
+    private final AtomicBoolean mRegistered = new AtomicBoolean();
+
+
+    /**
+     * Create a new registry.
+     *
+     * @param maxSize
+     *         The maximum number of palettes to keep.
+     */
+    public PaletteRegistry(int maxSize)
+    {
+        mCache = new LruCache<>(maxSize);
+    }
+
+
+    /**
+     * Returns a palette with colors generated by the given {@link ColorFactory}. The palette is only built if it's not in the cache yet. The colors are
+     * generated lazily, see {@link LazyFactoryPalette}.
+     *
+     * @param id
+     *         An identifier for this palette.
+     * @param name
+     *         The name of the palette.
+     * @param colorProvider
+     *         An instance of {@link ColorFactory} that can return a color for each index.
+     * @param count
+     *         The number of colors to generate in this palette.
+     * @param columns
+     *         The number of columns to use in the layout
+     *
+     * @return The {@link Palette}.
+     */
+    public Palette factoryPalette(String id, String name, ColorFactory colorProvider, int count, int columns)
+    {
+        Key key = new Key(id, name, colorProvider, count, columns);
+        LruCache<Key, Palette> cache = mCache;
+        Palette result = cache.get(key);
+        if (result == null)
+        {
+            Palette palette = new LazyFactoryPalette(id, name, colorProvider, count, columns);
+            synchronized (cache)
+            {
+                // another thread might have been faster
+                result = cache.get(key);
+                if (result == null)
+                {
+                    cache.put(key, palette);
+                    result = palette;
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns a palette with colors generated by the given {@link ColorFactory} using a square layout if possible. The palette is only built if it's not in
+     * the cache yet.
+     *
+     * @param id
+     *         An identifier for this palette.
+     * @param name
+     *         The name of the palette.
+     * @param colorProvider
+     *         An instance of {@link ColorFactory} that can return a color for each index.
+     * @param count
+     *         The number of colors to generate in this palette.
+     *
+     * @return The {@link Palette}.
+     */
+    public Palette factoryPalette(String id, String name, ColorFactory colorProvider, int count)
+    {
+        return factoryPalette(id, name, colorProvider, count, (int) Math.floor(Math.sqrt(count)));
+    }
+
+
+    /**
+     * Register this registry for the memory callbacks of the application, so it releases palettes under memory pressure. The registry stays registered for
+     * the lifetime of the process, further calls have no effect.
+     *
+     * @param context
+     *         A {@link Context}.
+     */
+    public void register(Context context)
+    {
+        if (mRegistered.compareAndSet(false, true))
+        {
+            context.getApplicationContext().registerComponentCallbacks(this);
+        }
+    }
+
+
+    /**
+     * Remove all palettes from this registry.
+     */
+    public void clear()
+    {
+        mCache.evictAll();
+    }
+
+
+    @Override
+    public void onTrimMemory(int level)
+    {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL)
+        {
+            mCache.evictAll();
+        }
+        else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW)
+        {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+    }
+
+
+    @Override
+    public void onLowMemory()
+    {
+        mCache.evictAll();
+    }
+
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig)
+    {
+        // nothing to do
+    }
+
+
+    /**
+     * The key of a generated palette.
+     */
+    private final static class Key
+    {
+        private final String mId;
+        private final String mName;
+        private final ColorFactory mFactory;
+        private final int mCount;
+        private final int mColumns;
+
+
+        private Key(String id, String name, ColorFactory factory, int count, int columns)
+        {
+            mId = id;
+            mName = name;
+            mFactory = factory;
+            mCount = count;
+            mColumns = columns;
+        }
+
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return mCount == other.mCount && mColumns == other.mColumns && TextUtils.equals(mId, other.mId) && TextUtils.equals(mName, other.mName)
+                    && mFactory.equals(other.mFactory);
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return ((mFactory.hashCode() * 31 + mCount) * 31 + mColumns) * 31 + (mId == null ? 0 : mId.hashCode());
+        }
+    }
+}
@@ -17,9 +17,6 @@
 
 package org.dmfs.android.colorpicker.palettes;
 
-import android.graphics.Color;
-
-
 /**
  * A factory that returns the entire palette with a specific saturation and lightness value.
  *
@@ -27,13 +24,20 @@ import android.graphics.Color;
  */
 public final class RainbowColorFactory implements ColorFactory
 {
-    private final float[] mHSL = new float[] { 0, 0, 0 };
+    /**
+     * The saturation of all colors.
+     */
+    private final float mSaturation;
+    /**
+     * The lightness of all colors.
+     */
+    private final float mLightness;
 
 
     public RainbowColorFactory(float saturation, float lightness)
     {
-        mHSL[1] = saturation;
-        mHSL[2] = lightness;
+        mSaturation = saturation;
+        mLightness = lightness;
     }
 
 
@@ -41,10 +45,52 @@ public final class RainbowColorFactory implements ColorFactory
     public int colorAt(int index, int count)
     {
         count += 1;
-        float[] hsl = mHSL;
 
-        hsl[0] = index * 360f / count;
+        return HsvConverter.toArgb(255, index * 360f / count, mSaturation, mLightness);
+    }
+
+
+    @Override
+    public void fill(int[] target, int offset, int start, int end, int count)
+    {
+        float saturation = mSaturation;
+        float lightness = mLightness;
+        float divisor = count + 1;
+
+        for (int i = start; i < end; ++i)
+        {
+            target[offset++] = HsvConverter.toArgb(255, i * 360f / divisor, saturation, lightness);
+        }
+    }
+
+
+    float saturation()
+    {
+        return mSaturation;
+    }
 
-        return Color.HSVToColor(255, hsl);
+
+    float lightness()
+    {
+        return mLightness;
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof RainbowColorFactory))
+        {
+            return false;
+        }
+        RainbowColorFactory other = (RainbowColorFactory) obj;
+        return Float.compare(other.mSaturation, mSaturation) == 0 && Float.compare(other.mLightness, mLightness) == 0;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return Float.floatToIntBits(mSaturation) * 31 + Float.floatToIntBits(mLightness);
     }
 }
@@ -20,9 +20,14 @@ package org.dmfs.android.colorpicker.palettes;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 
 /**
  * A palette of random colors.
+ * <p>
+ * The colors are derived from a seed and their index only, so a palette is fully defined by its seed and the number of colors. Palettes with the same seed
+ * and size always have the same colors, even across processes. No colors are stored, each color is computed when it's requested.
  *
  * @author Marten Gajda
  */
@@ -46,6 +51,17 @@ public final class RandomPalette implements Palette
             return new RandomPalette[size];
         }
     };
+
+    /**
+     * The golden ratio increment of the SplitMix64 generator.
+     */
+    private final static long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * The source of seeds for palettes created without an explicit seed.
+     */
+    private final static AtomicLong SEEDER = new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
     /**
      * The palette name.
      */
@@ -55,9 +71,14 @@ public final class RandomPalette implements Palette
      */
     private String mPaletteId;
     /**
-     * The colors in this palette.
+     * The seed of the colors in this palette.
+     */
+    private long mSeed;
+    /**
+     * The number of colors in this palette.
      */
-    private int[] mValues;
+    private int mCount;
+    private final PaletteFingerprint.Cache mFingerprint = new PaletteFingerprint.Cache();
 
 
     /**
@@ -79,15 +100,40 @@ public final class RandomPalette implements Palette
      *         The number of colors in this palette.
      */
     public RandomPalette(String id, String name, int count)
+    {
+        this(id, name, count, mix64(SEEDER.getAndAdd(GOLDEN_GAMMA)));
+    }
+
+
+    /**
+     * Create a palette with <code>count</code> random colors derived from the given seed.
+     *
+     * @param id
+     *         An identifier for this palette.
+     * @param name
+     *         The name of this palette.
+     * @param count
+     *         The number of colors in this palette.
+     * @param seed
+     *         The seed of the colors.
+     */
+    public RandomPalette(String id, String name, int count, long seed)
     {
         mPaletteId = id;
         mName = name;
-        int[] values = new int[count];
-        for (int i = 0; i < count; ++i)
-        {
-            values[i] = 0xff000000 | (int) (Math.random() * 0x1000000);
-        }
-        mValues = values;
+        mCount = count;
+        mSeed = seed;
+    }
+
+
+    /**
+     * Returns the seed of this palette. Together with the number of colors it can be used to create the same palette again.
+     *
+     * @return The seed.
+     */
+    public long seed()
+    {
+        return mSeed;
     }
 
 
@@ -108,14 +154,19 @@ public final class RandomPalette implements Palette
     @Override
     public int numberOfColors()
     {
-        return mValues.length;
+        return mCount;
     }
 
 
     @Override
     public int colorAt(int index)
     {
-        return mValues[index];
+        if (index < 0 || index >= mCount)
+        {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        // this is the SplitMix64 output for the index-th step, which doesn't depend on any other colors
+        return 0xff000000 | (int) (mix64(mSeed + (index + 1) * GOLDEN_GAMMA) >>> 40);
     }
 
 
@@ -129,7 +180,28 @@ public final class RandomPalette implements Palette
     @Override
     public int numberOfColumns()
     {
-        return (int) Math.floor(Math.sqrt(mValues.length));
+        return (int) Math.floor(Math.sqrt(mCount));
+    }
+
+
+    @Override
+    public long fingerprint()
+    {
+        return mFingerprint.of(this);
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return PaletteFingerprint.equals(this, obj);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return PaletteFingerprint.hashCode(this);
     }
 
 
@@ -143,14 +215,30 @@ public final class RandomPalette implements Palette
     @Override
     public void writeToParcel(Parcel dest, int flags)
     {
+        dest.writeString(mPaletteId);
         dest.writeString(mName);
-        dest.writeIntArray(mValues);
+        dest.writeLong(mSeed);
+        dest.writeInt(mCount);
     }
 
 
     public void readFromParcel(Parcel in)
     {
+        mFingerprint.reset();
+        mPaletteId = in.readString();
         mName = in.readString();
-        mValues = in.createIntArray();
+        mSeed = in.readLong();
+        mCount = in.readInt();
+    }
+
+
+    /**
+     * The SplitMix64 mixing function.
+     */
+    private static long mix64(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 }
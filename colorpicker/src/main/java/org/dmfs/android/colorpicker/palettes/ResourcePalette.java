@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * A palette that takes its name, colors and color names from resources. In contrast to {@link ArrayPalette#fromResources(Context, String, int, int, int)}
+ * the resources are not loaded before they are needed and only the resource ids are parceled. Since the resources are loaded again after the palette has
+ * been read from a parcel, the color names always match the current locale.
+ * <p>
+ * After the palette has been read from a parcel, it uses the application resources that have been registered with {@link #attach(Context)}. This happens
+ * automatically when a palette is created and when the color picker dialog is attached.
+ *
+ * @author Marten Gajda
+ */
+public final class ResourcePalette implements Palette
+{
+    public static final Parcelable.Creator<ResourcePalette> CREATOR = new Parcelable.Creator<ResourcePalette>()
+    {
+        @Override
+        public ResourcePalette createFromParcel(Parcel in)
+        {
+            return new ResourcePalette(in.readString(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        }
+
+
+        @Override
+        public ResourcePalette[] newArray(int size)
+        {
+            return new ResourcePalette[size];
+        }
+    };
+
+    /**
+     * The application resources.
+     */
+    private final static AtomicReference<Resources> RESOURCES = new AtomicReference<>();
+
+    private final String mPaletteId;
+    private final int mPaletteNameId;
+    private final int mColorArrayId;
+    private final int mColumns;
+    private final int mColorNameArrayId;
+
+    private volatile String mPaletteName;
+    private volatile int[] mColors;
+    private volatile String[] mColorNames;
+    private final PaletteFingerprint.Cache mFingerprint = new PaletteFingerprint.Cache();
+
+
+    /**
+     * Creates a palette from resources.
+     *
+     * @param context
+     *         A {@link Context}.
+     * @param id
+     *         An identifier for this palette.
+     * @param paletteName
+     *         A string resource id for the palette name.
+     * @param colorArray
+     *         The integer array resource id for the colors.
+     * @param columns
+     *         The number of columns to use for the layout or a value &lt;= 0 to use a square layout if possible.
+     * @param colorNameArray
+     *         A string array resource for the color names or <code>0</code> if the colors don't have names.
+     */
+    public ResourcePalette(Context context, String id, int paletteName, int colorArray, int columns, int colorNameArray)
+    {
+        this(id, paletteName, colorArray, columns, colorNameArray);
+        attach(context);
+    }
+
+
+    /**
+     * Creates a palette from resources using a square layout if possible.
+     *
+     * @param context
+     *         A {@link Context}.
+     * @param id
+     *         An identifier for this palette.
+     * @param paletteName
+     *         A string resource id for the palette name.
+     * @param colorArray
+     *         The integer array resource id for the colors.
+     * @param colorNameArray
+     *         A string array resource for the color names or <code>0</code> if the colors don't have names.
+     */
+    public ResourcePalette(Context context, String id, int paletteName, int colorArray, int colorNameArray)
+    {
+        this(context, id, paletteName, colorArray, 0, colorNameArray);
+    }
+
+
+    private ResourcePalette(String id, int paletteName, int colorArray, int columns, int colorNameArray)
+    {
+        mPaletteId = id;
+        mPaletteNameId = paletteName;
+        mColorArrayId = colorArray;
+        mColumns = columns;
+        mColorNameArrayId = colorNameArray;
+    }
+
+
+    /**
+     * Register the resources of the application of the given {@link Context}, so palettes that have been read from a parcel can load their resources.
+     *
+     * @param context
+     *         A {@link Context}.
+     */
+    public static void attach(Context context)
+    {
+        RESOURCES.set(context.getApplicationContext().getResources());
+    }
+
+
+    private static Resources resources()
+    {
+        Resources resources = RESOURCES.get();
+        if (resources == null)
+        {
+            throw new IllegalStateException("ResourcePalette has not been attached to a Context");
+        }
+        return resources;
+    }
+
+
+    private int[] colors()
+    {
+        // racy, but the result is always the same
+        int[] colors = mColors;
+        if (colors == null)
+        {
+            colors = resources().getIntArray(mColorArrayId);
+            mColors = colors;
+        }
+        return colors;
+    }
+
+
+    @Override
+    public String name()
+    {
+        String name = mPaletteName;
+        if (name == null)
+        {
+            name = resources().getString(mPaletteNameId);
+            mPaletteName = name;
+        }
+        return name;
+    }
+
+
+    @Override
+    public String id()
+    {
+        return mPaletteId;
+    }
+
+
+    @Override
+    public int numberOfColors()
+    {
+        return colors().length;
+    }
+
+
+    @Override
+    public int colorAt(int index)
+    {
+        return colors()[index];
+    }
+
+
+    @Override
+    public String nameOfColorAt(int index)
+    {
+        if (mColorNameArrayId == 0)
+        {
+            return null;
+        }
+        String[] names = mColorNames;
+        if (names == null)
+        {
+            names = resources().getStringArray(mColorNameArrayId);
+            mColorNames = names;
+        }
+        return names[index];
+    }
+
+
+    @Override
+    public int numberOfColumns()
+    {
+        return mColumns > 0 ? mColumns : (int) Math.floor(Math.sqrt(colors().length));
+    }
+
+
+    @Override
+    public long fingerprint()
+    {
+        return mFingerprint.of(this);
+    }
+
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return PaletteFingerprint.equals(this, obj);
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return PaletteFingerprint.hashCode(this);
+    }
+
+
+    @Override
+    public int describeContents()
+    {
+        return 0;
+    }
+
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags)
+    {
+        dest.writeString(mPaletteId);
+        dest.writeInt(mPaletteNameId);
+        dest.writeInt(mColorArrayId);
+        dest.writeInt(mColumns);
+        dest.writeInt(mColorNameArrayId);
+    }
+}
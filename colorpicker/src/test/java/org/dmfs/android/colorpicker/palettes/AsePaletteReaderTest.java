@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Test {@link AsePaletteReader}, in particular malformed input.
+ *
+ * @author Marten Gajda
+ */
+public class AsePaletteReaderTest
+{
+    @Test
+    public void testRead() throws IOException
+    {
+        Ase ase = new Ase()
+                .groupStart("Group")
+                .color("Red", "RGB ", 1f, 0f, 0f)
+                .color("", "Gray", 0.5f)
+                .groupEnd()
+                .color("Black", "CMYK", 0f, 0f, 0f, 1f)
+                .color("White", "LAB ", 1f, 0f, 0f);
+        Palette palette = read(ase.bytes());
+        assertEquals("id", palette.id());
+        assertEquals("name", palette.name());
+        assertEquals(4, palette.numberOfColors());
+        assertEquals(0xffff0000, palette.colorAt(0));
+        assertEquals(0xff808080, palette.colorAt(1));
+        assertEquals(0xff000000, palette.colorAt(2));
+        assertEquals(0xffffffff, palette.colorAt(3));
+        assertEquals("Red", palette.nameOfColorAt(0));
+        assertNull(palette.nameOfColorAt(1));
+        assertEquals("Black", palette.nameOfColorAt(2));
+    }
+
+
+    @Test
+    public void testNoReadAhead() throws IOException
+    {
+        byte[] ase = new Ase().color("Red", "RGB ", 1f, 0f, 0f).bytes();
+        byte[] data = new byte[ase.length + 1];
+        System.arraycopy(ase, 0, data, 0, ase.length);
+        data[ase.length] = 42;
+        InputStream in = new ByteArrayInputStream(data);
+        AsePaletteReader.read(in, "id", "name", 0);
+        // the stream is positioned right after the swatch data
+        assertEquals(42, in.read());
+    }
+
+
+    @Test
+    public void testMalformed() throws IOException
+    {
+        assertInvalid(new byte[0]);
+        assertInvalid("ASEX\0\1\0\0\0\0\0\0".getBytes("US-ASCII"));
+        // truncated
+        byte[] ase = new Ase().color("Red", "RGB ", 1f, 0f, 0f).bytes();
+        byte[] truncated = new byte[ase.length - 1];
+        System.arraycopy(ase, 0, truncated, 0, truncated.length);
+        assertInvalid(truncated);
+        // unknown color model
+        assertInvalid(new Ase().color("Red", "HSV ", 1f, 0f, 0f).bytes());
+    }
+
+
+    private static Palette read(byte[] ase) throws IOException
+    {
+        return AsePaletteReader.read(new ByteArrayInputStream(ase), "id", "name", 0);
+    }
+
+
+    private static void assertInvalid(byte[] ase)
+    {
+        try
+        {
+            read(ase);
+            fail("IOException expected");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+
+    /**
+     * A minimal writer of swatch exchange files.
+     */
+    private final static class Ase
+    {
+        private final ByteArrayOutputStream mBlocks = new ByteArrayOutputStream();
+        private int mBlockCount;
+
+
+        Ase groupStart(String name) throws IOException
+        {
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            writeName(new DataOutputStream(block), name);
+            return block(0xc001, block.toByteArray());
+        }
+
+
+        Ase groupEnd() throws IOException
+        {
+            return block(0xc002, new byte[0]);
+        }
+
+
+        Ase color(String name, String model, float... values) throws IOException
+        {
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(block);
+            writeName(out, name);
+            out.writeBytes(model);
+            for (float value : values)
+            {
+                out.writeFloat(value);
+            }
+            // global color type
+            out.writeShort(0);
+            return block(0x0001, block.toByteArray());
+        }
+
+
+        byte[] bytes() throws IOException
+        {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(result);
+            out.writeBytes("ASEF");
+            out.writeInt(0x00010000);
+            out.writeInt(mBlockCount);
+            mBlocks.writeTo(out);
+            return result.toByteArray();
+        }
+
+
+        private Ase block(int type, byte[] data) throws IOException
+        {
+            DataOutputStream out = new DataOutputStream(mBlocks);
+            out.writeShort(type);
+            out.writeInt(data.length);
+            out.write(data);
+            ++mBlockCount;
+            return this;
+        }
+
+
+        private static void writeName(DataOutputStream out, String name) throws IOException
+        {
+            out.writeShort(name.length() + 1);
+            out.writeChars(name);
+            out.writeShort(0);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Test that the shared {@link ColorFactory} constants can be used by multiple threads at the same time without any locking.
+ * <p>
+ * All threads use the same factory instances and have to get the same colors as a single thread.
+ *
+ * @author Marten Gajda
+ */
+public class ColorFactoryConcurrencyTest
+{
+    private final static ColorFactory[] FACTORIES = {
+            ColorFactory.GREY, ColorFactory.RED, ColorFactory.ORANGE, ColorFactory.YELLOW, ColorFactory.GREEN, ColorFactory.CYAN, ColorFactory.BLUE,
+            ColorFactory.PURPLE, ColorFactory.PINK, ColorFactory.RAINBOW, ColorFactory.PASTEL,
+            new CombinedColorFactory(ColorFactory.RED, ColorFactory.GREEN, ColorFactory.BLUE),
+            new CombinedColorFactory(ColorFactory.GREY, ColorFactory.RAINBOW, ColorFactory.PASTEL, ColorFactory.PINK) };
+
+    /**
+     * Numbers of colors, including some that are not a multiple of the number of factories of the {@link CombinedColorFactory}s.
+     */
+    private final static int[] COUNTS = { 1, 7, 18, 100, 1031 };
+
+    private final static int THREADS = 8;
+
+    private final static int ROUNDS = 50;
+
+
+    @Test
+    public void testFillMatchesColorAt()
+    {
+        for (ColorFactory factory : FACTORIES)
+        {
+            for (int count : COUNTS)
+            {
+                if (count < factories(factory))
+                {
+                    continue;
+                }
+                int[] expected = expected(factory, count);
+                int[] colors = new int[count];
+                factory.fill(colors, 0, 0, count, count);
+                assertArrayEquals(expected, colors);
+            }
+        }
+    }
+
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        // the expected colors, generated by a single thread
+        final int[][][] expected = new int[FACTORIES.length][COUNTS.length][];
+        for (int f = 0; f < FACTORIES.length; ++f)
+        {
+            for (int c = 0; c < COUNTS.length; ++c)
+            {
+                if (COUNTS[c] >= factories(FACTORIES[f]))
+                {
+                    expected[f][c] = expected(FACTORIES[f], COUNTS[c]);
+                }
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            for (int round = 0; round < ROUNDS; ++round)
+            {
+                final CyclicBarrier start = new CyclicBarrier(THREADS);
+                List<Future<int[][][]>> results = new ArrayList<>(THREADS);
+                for (int t = 0; t < THREADS; ++t)
+                {
+                    final int thread = t;
+                    results.add(executor.submit(() ->
+                    {
+                        start.await();
+                        int[][][] colors = new int[FACTORIES.length][COUNTS.length][];
+                        for (int f = 0; f < FACTORIES.length; ++f)
+                        {
+                            // each thread starts with a different factory, so different threads use the same factory at the same time
+                            int factory = (f + thread) % FACTORIES.length;
+                            for (int c = 0; c < COUNTS.length; ++c)
+                            {
+                                if (expected[factory][c] != null)
+                                {
+                                    colors[factory][c] = thread % 2 == 0
+                                            ? colorsAt(FACTORIES[factory], COUNTS[c])
+                                            : filled(FACTORIES[factory], COUNTS[c], thread);
+                                }
+                            }
+                        }
+                        return colors;
+                    }));
+                }
+                for (Future<int[][][]> result : results)
+                {
+                    int[][][] colors = result.get(10, TimeUnit.SECONDS);
+                    for (int f = 0; f < FACTORIES.length; ++f)
+                    {
+                        for (int c = 0; c < COUNTS.length; ++c)
+                        {
+                            assertArrayEquals("round " + round + ", factory " + f + ", count " + COUNTS[c], expected[f][c], colors[f][c]);
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+
+    /**
+     * Returns the colors of the given factory, calling {@link ColorFactory#colorAt(int, int)} for each index.
+     */
+    private static int[] colorsAt(ColorFactory factory, int count)
+    {
+        int[] result = new int[count];
+        for (int i = count - 1; i >= 0; --i)
+        {
+            result[i] = factory.colorAt(i, count);
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the colors of the given factory, calling {@link ColorFactory#fill(int[], int, int, int, int)} for ranges of different sizes, so runs of
+     * {@link CombinedColorFactory}s start and end at arbitrary positions.
+     */
+    private static int[] filled(ColorFactory factory, int count, int step)
+    {
+        int[] result = new int[count];
+        for (int start = 0, size = 1; start < count; start += size, size += step)
+        {
+            int end = Math.min(count, start + size);
+            factory.fill(result, start, start, end, count);
+        }
+        return result;
+    }
+
+
+    private static int[] expected(ColorFactory factory, int count)
+    {
+        int[] result = new int[count];
+        for (int i = 0; i < count; ++i)
+        {
+            result[i] = factory.colorAt(i, count);
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the minimum number of colors the given factory can generate.
+     */
+    private static int factories(ColorFactory factory)
+    {
+        return factory instanceof CombinedColorFactory ? ((CombinedColorFactory) factory).factories().length : 1;
+    }
+}
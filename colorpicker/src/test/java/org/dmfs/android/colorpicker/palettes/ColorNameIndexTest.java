@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Test {@link ColorNameIndex}.
+ *
+ * @author Marten Gajda
+ */
+public class ColorNameIndexTest
+{
+    private final static Palette BASIC = new ArrayPalette("basic", "Basic",
+            new int[] { 0xff0000ff, 0xff00008b, 0xff483d8b, 0xff000000, 0xff008000, 0xff808080, 0xff008080, 0xffd2b48c, 0xffffffff },
+            new String[] { "Blue", "Dark Blue", "Dark Slate Blue", "Black", "Green", "Grey", "Ocean", "Tan", null });
+
+    private final static Palette EXTRA = new ArrayPalette("extra", "Extra",
+            new int[] { 0xff0d98ba, 0xff00ffff, 0xff1e90ff },
+            new String[] { "Blue-Green", "Aqua", "DODGER BLUE" });
+
+
+    @Test
+    public void testPrefix()
+    {
+        ColorNameIndex index = new ColorNameIndex(BASIC, EXTRA);
+        assertMatches(index.search("gre"), "Green", "Grey", "Blue-Green");
+        assertMatches(index.search("tan"), "Tan");
+        assertMatches(index.search("aq"), "Aqua");
+        // prefixes only match at the start of a word
+        assertMatches(index.search("lue"), "Blue", "Dark Blue", "Dark Slate Blue", "Blue-Green", "DODGER BLUE");
+    }
+
+
+    @Test
+    public void testMultipleWords()
+    {
+        ColorNameIndex index = new ColorNameIndex(BASIC, EXTRA);
+        assertMatches(index.search("dar bl"), "Dark Blue", "Dark Slate Blue");
+        // the order of the words doesn't matter
+        assertMatches(index.search("blue dark"), "Dark Blue", "Dark Slate Blue");
+        assertMatches(index.search("dark slate blue"), "Dark Slate Blue");
+        // punctuation separates words
+        assertMatches(index.search("green blue"), "Blue-Green");
+        assertMatches(index.search("  dark,   slate "), "Dark Slate Blue");
+    }
+
+
+    @Test
+    public void testCaseFolding()
+    {
+        ColorNameIndex index = new ColorNameIndex(BASIC, EXTRA);
+        assertMatches(index.search("DARK blue"), "Dark Blue", "Dark Slate Blue");
+        assertMatches(index.search("dodger"), "DODGER BLUE");
+        assertMatches(index.search("Dodger Bl"), "DODGER BLUE");
+    }
+
+
+    @Test
+    public void testSameWordInManyNames()
+    {
+        int count = 100;
+        int[] colors = new int[count];
+        String[] names = new String[count];
+        for (int i = 0; i < count; ++i)
+        {
+            colors[i] = 0xff000000 | i;
+            names[i] = i % 2 == 0 ? "Blue" : "Blue " + i;
+        }
+        Palette palette = new ArrayPalette("blues", "Blues", colors, names);
+
+        // every entry with the word is found, not just the ones after an arbitrary match among equal words
+        List<ColorMatch> matches = new ColorNameIndex(palette).search("blue");
+        assertEquals(count, matches.size());
+        for (int i = 0; i < count; ++i)
+        {
+            assertEquals(i, matches.get(i).index());
+        }
+    }
+
+
+    @Test
+    public void testFuzzy()
+    {
+        ColorNameIndex index = new ColorNameIndex(BASIC, EXTRA);
+        // "grean" has 5 trigrams, so names need to share at least 2 of them: " gr" and "gre" for "Green", "Grey" and "Blue-Green", "ean" and "an "
+        // for "Ocean", but "Tan" only shares "an "
+        assertMatches(index.search("grean"), "Green", "Grey", "Ocean", "Blue-Green");
+        // "bleu" has 4 trigrams, one shared trigram is enough
+        assertMatches(index.search("bleu"), "Blue", "Dark Blue", "Dark Slate Blue", "Black", "Blue-Green", "DODGER BLUE");
+        // the fuzzy search is only a fallback if there are no prefix matches
+        assertMatches(index.search("tan"), "Tan");
+    }
+
+
+    @Test
+    public void testOrder()
+    {
+        // hits are in the order of the palettes and their colors, regardless of how well they match
+        assertMatches(new ColorNameIndex(EXTRA, BASIC).search("blue"), "Blue-Green", "DODGER BLUE", "Blue", "Dark Blue", "Dark Slate Blue");
+        assertMatches(new ColorNameIndex(EXTRA, BASIC).search("grean"), "Blue-Green", "Green", "Grey", "Ocean");
+
+        List<ColorMatch> matches = new ColorNameIndex(BASIC, EXTRA, BASIC).search("tan");
+        assertEquals(2, matches.size());
+        assertEquals(7, matches.get(0).index());
+        assertEquals(BASIC, matches.get(0).palette());
+        assertEquals(7, matches.get(1).index());
+    }
+
+
+    @Test
+    public void testNoMatch()
+    {
+        ColorNameIndex index = new ColorNameIndex(BASIC, EXTRA);
+        assertTrue(index.search("xyz").isEmpty());
+        assertTrue(index.search("purple").isEmpty());
+        assertTrue(index.search("").isEmpty());
+        assertTrue(index.search("  - ").isEmpty());
+        // unnamed colors are never found
+        assertTrue(index.search("white").isEmpty());
+        assertTrue(new ColorNameIndex().search("blue").isEmpty());
+        assertTrue(new ColorNameIndex(new ArrayPalette("unnamed", "Unnamed", new int[] { 0xff0000ff })).search("blue").isEmpty());
+    }
+
+
+    private static void assertMatches(List<ColorMatch> matches, String... names)
+    {
+        List<String> actual = new ArrayList<>(matches.size());
+        for (ColorMatch match : matches)
+        {
+            actual.add(match.name());
+        }
+        List<String> expected = new ArrayList<>(names.length);
+        for (String name : names)
+        {
+            expected.add(name);
+        }
+        assertEquals(expected, actual);
+    }
+}
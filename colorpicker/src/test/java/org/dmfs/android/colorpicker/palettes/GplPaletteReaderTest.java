@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Test {@link GplPaletteReader}, in particular malformed input.
+ *
+ * @author Marten Gajda
+ */
+public class GplPaletteReaderTest
+{
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+
+    @Test
+    public void testRead() throws IOException
+    {
+        Palette palette = read("GIMP Palette\r\nName: Test ä\r\nColumns: 3\r\n# a comment\r\n\r\n255   0   0\tRed\r\n  0 128   0\r\n0 0 255 Blue  \r\n");
+        assertEquals("id", palette.id());
+        assertEquals("Test ä", palette.name());
+        assertEquals(3, palette.numberOfColumns());
+        assertEquals(3, palette.numberOfColors());
+        assertEquals(0xffff0000, palette.colorAt(0));
+        assertEquals(0xff008000, palette.colorAt(1));
+        assertEquals(0xff0000ff, palette.colorAt(2));
+        assertEquals("Red", palette.nameOfColorAt(0));
+        assertNull(palette.nameOfColorAt(1));
+        assertEquals("Blue", palette.nameOfColorAt(2));
+    }
+
+
+    @Test
+    public void testDefaultName() throws IOException
+    {
+        // no trailing line break
+        Palette palette = read("GIMP Palette\n1 2 3");
+        assertEquals("default name", palette.name());
+        assertEquals(0xff010203, palette.colorAt(0));
+    }
+
+
+    @Test
+    public void testComponentRange() throws IOException
+    {
+        assertEquals(0xffffffff, read("GIMP Palette\n255 255 255\n").colorAt(0));
+        // leading zeros are fine
+        assertEquals(0xff00ff00, read("GIMP Palette\n0000 000255 0\n").colorAt(0));
+        assertInvalid("GIMP Palette\n256 0 0\n");
+        assertInvalid("GIMP Palette\n0 1000 0\n");
+        // values that wrap around to a valid component when summed up in an int
+        assertInvalid("GIMP Palette\n4294967296 0 0\n");
+        assertInvalid("GIMP Palette\n0 0 4294967551\n");
+        assertInvalid("GIMP Palette\n0 0 99999999999999999999999999999999\n");
+    }
+
+
+    @Test
+    public void testColumnRange() throws IOException
+    {
+        assertEquals(64, read("GIMP Palette\nColumns: 64\n0 0 0\n").numberOfColumns());
+        assertInvalid("GIMP Palette\nColumns: 100000\n0 0 0\n");
+        // values that wrap around to a negative or small column count when summed up in an int
+        assertInvalid("GIMP Palette\nColumns: 2147483648\n0 0 0\n");
+        assertInvalid("GIMP Palette\nColumns: 4294967300\n0 0 0\n");
+    }
+
+
+    @Test
+    public void testManyColors() throws IOException
+    {
+        // lines span the boundaries of the read buffer, including line breaks split between \r and \n
+        int count = 5000;
+        StringBuilder gpl = new StringBuilder("GIMP Palette\r\n");
+        for (int i = 0; i < count; ++i)
+        {
+            gpl.append(color(i) >> 16 & 0xff).append(' ').append(color(i) >> 8 & 0xff).append(' ').append(color(i) & 0xff).append(" Color ").append(i)
+                    .append("\r\n");
+        }
+        Palette palette = read(gpl.toString());
+        assertEquals(count, palette.numberOfColors());
+        for (int i = 0; i < count; ++i)
+        {
+            assertEquals(color(i), palette.colorAt(i));
+            assertEquals("Color " + i, palette.nameOfColorAt(i));
+        }
+    }
+
+
+    @Test
+    public void testMalformed()
+    {
+        assertInvalid("");
+        assertInvalid("GIMP Pal\n0 0 0\n");
+        assertInvalid("GIMP Palette\n0 0\n");
+        assertInvalid("GIMP Palette\n0 x 0\n");
+        assertInvalid("GIMP Palette\n-1 0 0\n");
+        assertInvalid("GIMP Palette\nColumns: many\n");
+    }
+
+
+    private static int color(int index)
+    {
+        // spread the colors over the whole RGB space
+        return 0xff000000 | (index * 0x9e3779b1) & 0xffffff;
+    }
+
+
+    private static Palette read(String gpl) throws IOException
+    {
+        return GplPaletteReader.read(new ByteArrayInputStream(gpl.getBytes(UTF8)), "id", "default name");
+    }
+
+
+    private static void assertInvalid(String gpl)
+    {
+        try
+        {
+            read(gpl);
+            fail("IOException expected for " + gpl);
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+}
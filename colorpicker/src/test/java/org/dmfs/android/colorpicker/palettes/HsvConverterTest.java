@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * Test {@link HsvConverter} against reference values of {@link android.graphics.Color#HSVToColor(int, float[])}, including its edge cases.
+ *
+ * @author Marten Gajda
+ */
+public class HsvConverterTest
+{
+    @Test
+    public void testPrimaries()
+    {
+        assertHsv(0xffff0000, 0f, 1f, 1f);
+        assertHsv(0xffffff00, 60f, 1f, 1f);
+        assertHsv(0xff00ff00, 120f, 1f, 1f);
+        assertHsv(0xff00ffff, 180f, 1f, 1f);
+        assertHsv(0xff0000ff, 240f, 1f, 1f);
+        assertHsv(0xffff00ff, 300f, 1f, 1f);
+    }
+
+
+    @Test
+    public void testSectors()
+    {
+        assertHsv(0xffcc9966, 30f, 0.5f, 0.8f);
+        assertHsv(0xff99cc66, 90f, 0.5f, 0.8f);
+        assertHsv(0xff66cc99, 150f, 0.5f, 0.8f);
+        assertHsv(0xff266099, 210f, 0.75f, 0.6f);
+        assertHsv(0xff602699, 270f, 0.75f, 0.6f);
+        assertHsv(0xff992660, 330f, 0.75f, 0.6f);
+    }
+
+
+    @Test
+    public void testHueRange()
+    {
+        // hues outside of [0..360) are taken as 0
+        assertHsv(0xffff0000, 360f, 1f, 1f);
+        assertHsv(0xffff0000, 720f, 1f, 1f);
+        assertHsv(0xffff0000, -10f, 1f, 1f);
+        assertHsv(0xffff0000, 359.999f, 1f, 1f);
+        assertHsv(0xffff0004, 359f, 1f, 1f);
+    }
+
+
+    @Test
+    public void testSaturationZero()
+    {
+        assertHsv(0xff000000, 200f, 0f, 0f);
+        assertHsv(0xff808080, 200f, 0f, 0.5f);
+        assertHsv(0xffffffff, 200f, 0f, 1f);
+        // saturations up to 1/4096 are taken as 0
+        assertHsv(0xff808080, 200f, 1f / 4096f, 0.5f);
+        assertHsv(0xff808080, 200f, -1f, 0.5f);
+    }
+
+
+    @Test
+    public void testValueZero()
+    {
+        assertHsv(0xff000000, 0f, 1f, 0f);
+        assertHsv(0xff000000, 120f, 0.5f, 0f);
+        assertHsv(0xff000000, 300f, 1f, -1f);
+    }
+
+
+    @Test
+    public void testClamping()
+    {
+        assertHsv(0xffff0000, 0f, 2f, 1f);
+        assertHsv(0xff00ff00, 120f, 1f, 2f);
+    }
+
+
+    @Test
+    public void testAlpha()
+    {
+        assertEquals(0x80ff0000, HsvConverter.toArgb(0x80, 0f, 1f, 1f));
+        assertEquals(0x00808080, HsvConverter.toArgb(0, 0f, 0f, 0.5f));
+    }
+
+
+    @Test
+    public void testArrays()
+    {
+        assertEquals(0xffcc9966, HsvConverter.toArgb(255, new float[] { 30f, 0.5f, 0.8f }));
+
+        int[] target = new int[4];
+        HsvConverter.toArgb(255, new float[] { 0f, 30f, 120f, 360f }, new float[] { 0f, 0.5f, 1f, 1f }, new float[] { 0f, 0.8f, 1f, 1f }, 1, target, 1, 3);
+        assertArrayEquals(new int[] { 0, 0xffcc9966, 0xff00ff00, 0xffff0000 }, target);
+    }
+
+
+    private static void assertHsv(int expected, float hue, float saturation, float value)
+    {
+        assertEquals("hsv(" + hue + ", " + saturation + ", " + value + ")", expected, HsvConverter.toArgb(255, hue, saturation, value));
+    }
+}
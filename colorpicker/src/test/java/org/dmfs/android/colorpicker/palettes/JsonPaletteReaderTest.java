@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Test {@link JsonPaletteReader}, in particular malformed input.
+ *
+ * @author Marten Gajda
+ */
+public class JsonPaletteReaderTest
+{
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+
+    @Test
+    public void testRead() throws IOException
+    {
+        Palette palette = read("{\"id\": \"p\", \"name\": \"Palette\", \"columns\": 2, \"extra\": [1, {\"a\": true}],"
+                + " \"colors\": [\"#ff0000\", \"#8000ff00\", {\"color\": \"#0000ff\", \"name\": \"Blue \\u00e4\u00e4\"}, 4294967295]}");
+        assertEquals("p", palette.id());
+        assertEquals("Palette", palette.name());
+        assertEquals(2, palette.numberOfColumns());
+        assertEquals(4, palette.numberOfColors());
+        assertEquals(0xffff0000, palette.colorAt(0));
+        assertEquals(0x8000ff00, palette.colorAt(1));
+        assertEquals(0xff0000ff, palette.colorAt(2));
+        assertEquals(0xffffffff, palette.colorAt(3));
+        assertEquals("Blue \u00e4\u00e4", palette.nameOfColorAt(2));
+    }
+
+
+    @Test
+    public void testNullNames() throws IOException
+    {
+        Palette palette = read("{\"id\": null, \"name\": null,"
+                + " \"colors\": [{\"color\": \"#0000ff\", \"name\": null}, {\"color\": \"#ff0000\", \"name\": \"Red\"}]}");
+        assertEquals("default id", palette.id());
+        assertEquals("default name", palette.name());
+        assertNull(palette.nameOfColorAt(0));
+        assertEquals("Red", palette.nameOfColorAt(1));
+    }
+
+
+    @Test
+    public void testSupplementaryCharacter() throws IOException
+    {
+        // U+1F3A8 (artist palette)
+        Palette palette = read(bytes("[{\"color\": \"#0000ff\", \"name\": \"", 0xf0, 0x9f, 0x8e, 0xa8, "\"}]"));
+        assertEquals("\ud83c\udfa8", palette.nameOfColorAt(0));
+    }
+
+
+    @Test
+    public void testInvalidUtf8()
+    {
+        // beyond U+10FFFF
+        assertInvalid(bytes("[{\"color\": \"#0000ff\", \"name\": \"", 0xf4, 0x90, 0x80, 0x80, "\"}]"));
+        assertInvalid(bytes("[{\"color\": \"#0000ff\", \"name\": \"", 0xf7, 0xbf, 0xbf, 0xbf, "\"}]"));
+        // overlong encodings
+        assertInvalid(bytes("[{\"color\": \"#0000ff\", \"name\": \"", 0xc0, 0xaf, "\"}]"));
+        assertInvalid(bytes("[{\"color\": \"#0000ff\", \"name\": \"", 0xe0, 0x80, 0xaf, "\"}]"));
+        assertInvalid(bytes("[{\"color\": \"#0000ff\", \"name\": \"", 0xf0, 0x80, 0x80, 0xaf, "\"}]"));
+        // encoded surrogate
+        assertInvalid(bytes("[{\"color\": \"#0000ff\", \"name\": \"", 0xed, 0xa0, 0x80, "\"}]"));
+        // missing continuation
+        assertInvalid(bytes("[{\"color\": \"#0000ff\", \"name\": \"", 0xe4, 0x41, "\"}]"));
+    }
+
+
+    @Test
+    public void testDeepNesting() throws IOException
+    {
+        // moderate nesting is skipped
+        assertEquals(1, read("{\"extra\": " + nested(32) + ", \"colors\": [1]}").numberOfColors());
+        // deep nesting is rejected rather than overflowing the stack
+        assertInvalid(("{\"extra\": " + nested(100000) + ", \"colors\": [1]}").getBytes(UTF8));
+    }
+
+
+    @Test
+    public void testManyColors() throws IOException
+    {
+        // tokens span the boundaries of the read buffer
+        int count = 5000;
+        StringBuilder json = new StringBuilder("{\"colors\": [");
+        for (int i = 0; i < count; ++i)
+        {
+            json.append(i == 0 ? "" : ", ").append("{\"color\": ").append(color(i) & 0xffffffffL).append(", \"name\": \"Color ").append(i).append("\"}");
+        }
+        json.append("]}");
+        Palette palette = read(json.toString());
+        assertEquals(count, palette.numberOfColors());
+        for (int i = 0; i < count; ++i)
+        {
+            assertEquals(color(i), palette.colorAt(i));
+            assertEquals("Color " + i, palette.nameOfColorAt(i));
+        }
+    }
+
+
+    @Test
+    public void testMalformed()
+    {
+        assertInvalid("{\"name\": nul, \"colors\": [1]}".getBytes(UTF8));
+        assertInvalid("{\"name\": 1, \"colors\": [1]}".getBytes(UTF8));
+        assertInvalid("{\"name\": \"x\"}".getBytes(UTF8));
+        assertInvalid("[\"#12345\"]".getBytes(UTF8));
+        assertInvalid("[1, ".getBytes(UTF8));
+    }
+
+
+    private static int color(int index)
+    {
+        // spread the colors over the whole RGB space
+        return 0xff000000 | (index * 0x9e3779b1) & 0xffffff;
+    }
+
+
+    private static Palette read(String json) throws IOException
+    {
+        return read(json.getBytes(UTF8));
+    }
+
+
+    private static Palette read(byte[] json) throws IOException
+    {
+        return JsonPaletteReader.read(new ByteArrayInputStream(json), "default id", "default name");
+    }
+
+
+    private static void assertInvalid(byte[] json)
+    {
+        try
+        {
+            read(json);
+            fail("IOException expected for " + new String(json, UTF8));
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+
+    /**
+     * Returns the UTF-8 bytes of the given parts. Strings are encoded, integers are taken as raw bytes.
+     */
+    private static byte[] bytes(Object... parts)
+    {
+        byte[] result = new byte[0];
+        for (Object part : parts)
+        {
+            byte[] bytes = part instanceof String ? ((String) part).getBytes(UTF8) : new byte[] { (byte) (int) (Integer) part };
+            int length = result.length;
+            result = Arrays.copyOf(result, length + bytes.length);
+            System.arraycopy(bytes, 0, result, length, bytes.length);
+        }
+        return result;
+    }
+
+
+    private static String nested(int depth)
+    {
+        StringBuilder result = new StringBuilder(depth * 2 + 1);
+        for (int i = 0; i < depth; ++i)
+        {
+            result.append('[');
+        }
+        result.append('1');
+        for (int i = 0; i < depth; ++i)
+        {
+            result.append(']');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Test {@link LazyFactoryPalette}, in particular that threads racing for the same uncomputed blocks all get the right colors.
+ *
+ * @author Marten Gajda
+ */
+public class LazyFactoryPaletteTest
+{
+    private final static ColorFactory[] FACTORIES = {
+            ColorFactory.GREY, ColorFactory.RED, ColorFactory.RAINBOW, ColorFactory.PASTEL,
+            new CombinedColorFactory(ColorFactory.RED, ColorFactory.GREEN, ColorFactory.BLUE) };
+
+    private final static int THREADS = 8;
+
+    private final static int ROUNDS = 200;
+
+    /**
+     * A number of colors that's not a multiple of the block size, so the last block is incomplete.
+     */
+    private final static int COUNT = 1031;
+
+
+    @Test
+    public void testColors()
+    {
+        for (ColorFactory factory : FACTORIES)
+        {
+            assertArrayEquals(expected(factory, COUNT), colors(new LazyFactoryPalette("id", "name", factory, COUNT)));
+        }
+    }
+
+
+    @Test
+    public void testReverseOrder()
+    {
+        for (ColorFactory factory : FACTORIES)
+        {
+            int[] expected = expected(factory, COUNT);
+            LazyFactoryPalette palette = new LazyFactoryPalette("id", "name", factory, COUNT);
+            for (int i = COUNT - 1; i >= 0; --i)
+            {
+                assertEquals(expected[i], palette.colorAt(i));
+            }
+        }
+    }
+
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try
+        {
+            for (int round = 0; round < ROUNDS; ++round)
+            {
+                ColorFactory factory = FACTORIES[round % FACTORIES.length];
+                final int[] expected = expected(factory, COUNT);
+                // a fresh palette each round, so all threads race for the same uncomputed blocks
+                final LazyFactoryPalette palette = new LazyFactoryPalette("id", "name", factory, COUNT);
+                final CyclicBarrier start = new CyclicBarrier(THREADS);
+                List<Future<int[]>> results = new ArrayList<>(THREADS);
+                for (int t = 0; t < THREADS; ++t)
+                {
+                    final int thread = t;
+                    results.add(executor.submit(() ->
+                    {
+                        start.await();
+                        // each thread starts at a different index and walks in a different direction and step width
+                        int[] colors = new int[COUNT];
+                        int step = thread % 2 == 0 ? 1 : COUNT - 1;
+                        for (int i = 0, index = thread * COUNT / THREADS; i < COUNT; ++i, index = (index + step) % COUNT)
+                        {
+                            colors[index] = palette.colorAt(index);
+                        }
+                        return colors;
+                    }));
+                }
+                for (Future<int[]> result : results)
+                {
+                    assertArrayEquals("round " + round, expected, result.get(10, TimeUnit.SECONDS));
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+
+    private static int[] expected(ColorFactory factory, int count)
+    {
+        int[] result = new int[count];
+        for (int i = 0; i < count; ++i)
+        {
+            result[i] = factory.colorAt(i, count);
+        }
+        return result;
+    }
+
+
+    private static int[] colors(Palette palette)
+    {
+        int[] result = new int[palette.numberOfColors()];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = palette.colorAt(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.fail;
+
+
+/**
+ * Test {@link OkLab} against a straight double precision implementation.
+ *
+ * @author Marten Gajda
+ */
+public class OkLabTest
+{
+    /**
+     * The maximum error of each OKLab component. That's about the precision of a float.
+     */
+    private final static double TOLERANCE = 1e-5;
+
+
+    @Test
+    public void testDarkColors()
+    {
+        // the cube roots of small values need the most care, so test every color close to black
+        for (int r = 0; r < 32; ++r)
+        {
+            for (int g = 0; g < 32; ++g)
+            {
+                for (int b = 0; b < 32; ++b)
+                {
+                    assertFromArgb(0xff000000 | (r << 16) | (g << 8) | b);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testAllColors()
+    {
+        for (int r = 0; r < 256; r += 3)
+        {
+            for (int g = 0; g < 256; g += 3)
+            {
+                for (int b = 0; b < 256; b += 3)
+                {
+                    assertFromArgb(0xff000000 | (r << 16) | (g << 8) | b);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testRoundTrip()
+    {
+        float[] lab = new float[3];
+        for (int r = 0; r < 256; r += 5)
+        {
+            for (int g = 0; g < 256; g += 5)
+            {
+                for (int b = 0; b < 256; b += 5)
+                {
+                    int color = 0xff000000 | (r << 16) | (g << 8) | b;
+                    OkLab.fromArgb(color, lab);
+                    int result = OkLab.toArgb(lab[0], lab[1], lab[2]);
+                    if (result != color)
+                    {
+                        fail(String.format("expected #%06x but was #%06x", color & 0xffffff, result & 0xffffff));
+                    }
+                }
+            }
+        }
+    }
+
+
+    private static void assertFromArgb(int color)
+    {
+        float[] lab = new float[3];
+        OkLab.fromArgb(color, lab);
+        double[] expected = reference(color);
+        for (int i = 0; i < 3; ++i)
+        {
+            if (Math.abs(expected[i] - lab[i]) > TOLERANCE)
+            {
+                fail(String.format("#%06x: expected %s but was %s", color & 0xffffff, Arrays.toString(expected), Arrays.toString(lab)));
+            }
+        }
+    }
+
+
+    private static double[] reference(int color)
+    {
+        double r = linear((color >>> 16) & 0xff);
+        double g = linear((color >>> 8) & 0xff);
+        double b = linear(color & 0xff);
+
+        double l = Math.cbrt(0.4122214708 * r + 0.5363014883 * g + 0.0514770409 * b);
+        double m = Math.cbrt(0.2119034982 * r + 0.6806995451 * g + 0.1073969566 * b);
+        double s = Math.cbrt(0.0883024619 * r + 0.2817188376 * g + 0.6299787005 * b);
+
+        return new double[] {
+                0.2104542553 * l + 0.7936177850 * m - 0.0040720468 * s,
+                1.9779984951 * l - 2.4285922050 * m + 0.4505937099 * s,
+                0.0259040371 * l + 0.7827717662 * m - 0.8086757660 * s };
+    }
+
+
+    private static double linear(int component)
+    {
+        double c = component / 255.0;
+        return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+
+/**
+ * Compares the throughput of {@link OklchColorFactory} with the HSV based {@link ColorShadeFactory}. The results are printed to stdout, timing is not
+ * asserted, because it depends on the machine. The correctness of the conversion is tested by {@link OkLabTest}.
+ * <p>
+ * Benchmarks don't run with the other unit tests, run them with <code>gradlew test -Pbenchmarks</code>.
+ *
+ * @author Marten Gajda
+ */
+public class OklchColorFactoryBenchmark
+{
+    private final static int COUNT = 1 << 16;
+
+    private final static int WARMUP_ROUNDS = 20;
+
+    private final static int ROUNDS = 50;
+
+    /**
+     * Receives a checksum of the results, so the JIT can't drop the work.
+     */
+    private static volatile int sSink;
+
+
+    @Test
+    public void benchmarkFill()
+    {
+        double shade = run(new ColorShadeFactory(200f));
+        double oklch = run(new OklchColorFactory(200f, 0.12f));
+        System.out.println(String.format(Locale.US, "ColorShadeFactory: %.1f Mcolors/s, OklchColorFactory: %.1f Mcolors/s (%.2fx)", shade, oklch,
+                oklch / shade));
+    }
+
+
+    @Test
+    public void benchmarkColorAt()
+    {
+        double shade = runColorAt(new ColorShadeFactory(200f));
+        double oklch = runColorAt(new OklchColorFactory(200f, 0.12f));
+        System.out.println(String.format(Locale.US, "ColorShadeFactory.colorAt: %.1f Mcolors/s, OklchColorFactory.colorAt: %.1f Mcolors/s (%.2fx)", shade,
+                oklch, oklch / shade));
+    }
+
+
+    /**
+     * Returns the throughput of {@link ColorFactory#fill(int[], int, int, int, int)} in million colors per second.
+     */
+    private static double run(ColorFactory factory)
+    {
+        int[] colors = new int[COUNT];
+        int checksum = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; ++i)
+        {
+            factory.fill(colors, 0, 0, COUNT, COUNT);
+            checksum += colors[i];
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; ++i)
+        {
+            factory.fill(colors, 0, 0, COUNT, COUNT);
+            checksum += colors[i];
+        }
+        long duration = System.nanoTime() - start;
+        sSink = checksum;
+        return (double) ROUNDS * COUNT * 1000 / duration;
+    }
+
+
+    /**
+     * Returns the throughput of {@link ColorFactory#colorAt(int, int)} in million colors per second.
+     */
+    private static double runColorAt(ColorFactory factory)
+    {
+        int checksum = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; ++i)
+        {
+            for (int j = 0; j < COUNT; ++j)
+            {
+                checksum += factory.colorAt(j, COUNT);
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; ++i)
+        {
+            for (int j = 0; j < COUNT; ++j)
+            {
+                checksum += factory.colorAt(j, COUNT);
+            }
+        }
+        long duration = System.nanoTime() - start;
+        sSink = checksum;
+        return (double) ROUNDS * COUNT * 1000 / duration;
+    }
+}
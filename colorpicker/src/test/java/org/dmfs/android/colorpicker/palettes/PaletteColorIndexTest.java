@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Test {@link PaletteColorIndex} against a brute force scan of all colors in OKLab space.
+ * <p>
+ * Colors may have the same distance to the target, so matches are compared by distance rather than by position.
+ *
+ * @author Marten Gajda
+ */
+public class PaletteColorIndexTest
+{
+    private final static int QUERIES = 200;
+
+    private final static int[] K = { 1, 2, 5, 17 };
+
+
+    @Test
+    public void testRandomPalettes()
+    {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; ++round)
+        {
+            Palette[] palettes = new Palette[1 + random.nextInt(4)];
+            for (int p = 0; p < palettes.length; ++p)
+            {
+                palettes[p] = randomPalette(random, "p" + p, 1 + random.nextInt(300));
+            }
+            assertMatchesBruteForce(new PaletteColorIndex(palettes), palettes, random);
+        }
+    }
+
+
+    @Test
+    public void testDuplicates()
+    {
+        Random random = new Random(7);
+        int[] colors = new int[120];
+        for (int i = 0; i < colors.length; ++i)
+        {
+            // only a few distinct colors, many equal coordinates on every axis
+            colors[i] = i % 3 == 0 ? 0xff808080 : 0xff000000 | random.nextInt(4) * 0x404040;
+        }
+        Palette palette = new ArrayPalette("duplicates", "Duplicates", colors);
+        Palette copy = new ArrayPalette("copy", "Copy", colors.clone());
+        PaletteColorIndex index = new PaletteColorIndex(palette, copy);
+        assertMatchesBruteForce(index, new Palette[] { palette, copy }, random);
+
+        // all duplicates of the exact color are returned before anything else
+        List<ColorMatch> matches = index.nearest(0xff808080, 200);
+        int exact = 0;
+        for (int color : colors)
+        {
+            if (color == 0xff808080)
+            {
+                exact += 2;
+            }
+        }
+        for (int i = 0; i < exact; ++i)
+        {
+            assertEquals(0f, matches.get(i).distance(), 0f);
+            assertEquals(0xff808080, matches.get(i).color());
+        }
+        assertTrue(matches.get(exact).distance() > 0f);
+        assertDistinct(matches);
+    }
+
+
+    @Test
+    public void testKLargerThanIndex()
+    {
+        Palette palette = randomPalette(new Random(1), "small", 5);
+        PaletteColorIndex index = new PaletteColorIndex(palette);
+        List<ColorMatch> matches = index.nearest(0xff123456, 50);
+        assertEquals(5, matches.size());
+        assertDistinct(matches);
+        assertEquals(bruteForce(new Palette[] { palette }, 0xff123456), distances(matches));
+    }
+
+
+    @Test
+    public void testEmptyIndex()
+    {
+        PaletteColorIndex index = new PaletteColorIndex();
+        assertNull(index.nearest(0xff000000));
+        assertTrue(index.nearest(0xff000000, 3).isEmpty());
+
+        index = new PaletteColorIndex(new ArrayPalette("empty", "Empty", new int[0]));
+        assertNull(index.nearest(0xff000000));
+        assertTrue(index.nearest(0xff000000, 3).isEmpty());
+
+        index = new PaletteColorIndex(randomPalette(new Random(2), "some", 10));
+        assertTrue(index.nearest(0xff000000, 0).isEmpty());
+    }
+
+
+    @Test
+    public void testUpdate()
+    {
+        Random random = new Random(3);
+        Palette first = randomPalette(random, "first", 100);
+        Palette second = randomPalette(random, "second", 150);
+        Palette third = randomPalette(random, "third", 80);
+        PaletteColorIndex index = new PaletteColorIndex(first, second);
+        assertMatchesBruteForce(index, new Palette[] { first, second }, random);
+
+        // remove a palette
+        index.update(second);
+        assertMatchesBruteForce(index, new Palette[] { second }, random);
+        for (ColorMatch match : index.nearest(first.colorAt(0), 20))
+        {
+            assertSame(second, match.palette());
+        }
+
+        // replace it with another one
+        index.update(third);
+        assertMatchesBruteForce(index, new Palette[] { third }, random);
+        for (ColorMatch match : index.nearest(second.colorAt(0), 20))
+        {
+            assertSame(third, match.palette());
+        }
+
+        // add palettes that have been indexed before
+        index.update(first, third, second);
+        assertMatchesBruteForce(index, new Palette[] { first, third, second }, random);
+
+        index.update();
+        assertNull(index.nearest(first.colorAt(0)));
+    }
+
+
+    private static void assertMatchesBruteForce(PaletteColorIndex index, Palette[] palettes, Random random)
+    {
+        for (int q = 0; q < QUERIES; ++q)
+        {
+            // some of the targets are colors of the palettes
+            int target = q % 4 == 0 ? colorOf(palettes, random) : random.nextInt();
+            List<Float> expected = bruteForce(palettes, target);
+
+            ColorMatch nearest = index.nearest(target);
+            assertEquals(expected.get(0), nearest.distance(), 0f);
+            assertEquals(distance(nearest.palette(), nearest.index(), target), nearest.distance(), 0f);
+
+            for (int k : K)
+            {
+                List<ColorMatch> matches = index.nearest(target, k);
+                assertEquals(expected.subList(0, Math.min(k, expected.size())), distances(matches));
+                assertDistinct(matches);
+                for (ColorMatch match : matches)
+                {
+                    assertTrue(Arrays.asList(palettes).contains(match.palette()));
+                    assertEquals(distance(match.palette(), match.index(), target), match.distance(), 0f);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Returns the distances of all colors of the given palettes to the given color, closest first.
+     */
+    private static List<Float> bruteForce(Palette[] palettes, int target)
+    {
+        List<Float> result = new ArrayList<>();
+        for (Palette palette : palettes)
+        {
+            for (int i = 0; i < palette.numberOfColors(); ++i)
+            {
+                result.add(distance(palette, i, target));
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+
+
+    private static float distance(Palette palette, int index, int target)
+    {
+        float[] lab = new float[3];
+        float[] targetLab = new float[3];
+        OkLab.fromArgb(palette.colorAt(index), lab);
+        OkLab.fromArgb(target, targetLab);
+        float dl = targetLab[0] - lab[0];
+        float da = targetLab[1] - lab[1];
+        float db = targetLab[2] - lab[2];
+        return (float) Math.sqrt(dl * dl + da * da + db * db);
+    }
+
+
+    private static List<Float> distances(List<ColorMatch> matches)
+    {
+        List<Float> result = new ArrayList<>(matches.size());
+        for (ColorMatch match : matches)
+        {
+            result.add(match.distance());
+        }
+        return result;
+    }
+
+
+    private static void assertDistinct(List<ColorMatch> matches)
+    {
+        Set<String> positions = new HashSet<>();
+        for (ColorMatch match : matches)
+        {
+            assertTrue(positions.add(System.identityHashCode(match.palette()) + ":" + match.index()));
+        }
+    }
+
+
+    private static int colorOf(Palette[] palettes, Random random)
+    {
+        Palette palette = palettes[random.nextInt(palettes.length)];
+        return palette.numberOfColors() == 0 ? random.nextInt() : palette.colorAt(random.nextInt(palette.numberOfColors()));
+    }
+
+
+    private static Palette randomPalette(Random random, String id, int count)
+    {
+        int[] colors = new int[count];
+        for (int i = 0; i < count; ++i)
+        {
+            colors[i] = random.nextInt();
+        }
+        return new ArrayPalette(id, id, colors);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Test {@link PaletteFingerprint}.
+ *
+ * @author Marten Gajda
+ */
+public class PaletteFingerprintTest
+{
+    private final static int[] COLORS = { 0xffff0000, 0xff00ff00, 0xff0000ff };
+
+
+    @Test
+    public void testSameContent()
+    {
+        ArrayPalette palette = new ArrayPalette("id", "name", COLORS, new String[] { "red", "green", "blue" });
+        ArrayPalette same = new ArrayPalette("id", "name", COLORS.clone(), new String[] { "red", "green", "blue" });
+        assertEquals(PaletteFingerprint.of(palette), PaletteFingerprint.of(same));
+        assertEquals(palette, same);
+        assertEquals(palette.hashCode(), same.hashCode());
+    }
+
+
+    @Test
+    public void testNameCollisions()
+    {
+        // these pairs have the same String.hashCode()
+        assertNames("Aa", "BB");
+        assertNames("AaAa", "BBBB");
+        assertNames("AaBB", "BBAa");
+        assertNames("polygenelubricants", "GydZG_");
+        // odd lengths and names that only differ in the last character
+        assertNames("abc", "abd");
+        assertNames("a", "a\u0000");
+        assertNames("", null);
+    }
+
+
+    @Test
+    public void testColorsIgnoreNames()
+    {
+        ArrayPalette palette = new ArrayPalette("id", "name", COLORS, new String[] { "red", "green", "blue" });
+        ArrayPalette renamed = new ArrayPalette("other id", "other name", COLORS, new String[] { "rot", "grün", "blau" });
+        assertNotEquals(PaletteFingerprint.of(palette), PaletteFingerprint.of(renamed));
+        assertEquals(PaletteFingerprint.ofColors(palette), PaletteFingerprint.ofColors(renamed));
+        assertTrue(PaletteFingerprint.ofColors(palette) != PaletteFingerprint.ofColors(new ArrayPalette("id", "name", new int[] { 0xffff0000 })));
+    }
+
+
+    /**
+     * Asserts that the given names result in different fingerprints when they are used as palette id, palette name or color name.
+     */
+    private static void assertNames(String name, String other)
+    {
+        assertNotEquals(PaletteFingerprint.of(new ArrayPalette(name, "name", COLORS)), PaletteFingerprint.of(new ArrayPalette(other, "name", COLORS)));
+        assertNotEquals(PaletteFingerprint.of(new ArrayPalette("id", name, COLORS)), PaletteFingerprint.of(new ArrayPalette("id", other, COLORS)));
+        assertNotEquals(
+                PaletteFingerprint.of(new ArrayPalette("id", "name", COLORS, new String[] { name, "green", "blue" })),
+                PaletteFingerprint.of(new ArrayPalette("id", "name", COLORS, new String[] { other, "green", "blue" })));
+    }
+}
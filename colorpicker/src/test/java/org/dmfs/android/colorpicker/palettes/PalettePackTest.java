@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Test {@link PalettePackWriter} and {@link PalettePack}, in particular that malformed files are rejected.
+ *
+ * @author Marten Gajda
+ */
+public class PalettePackTest
+{
+    private final static Palette NAMED = new ArrayPalette("named", "Named palette", new int[] { 0xffff0000, 0x8000ff00, 0xff0000ff }, 2,
+            new String[] { "Red", null, "Blue ä🎨" });
+
+    private final static Palette UNNAMED = new ArrayPalette("unnamed", null, new int[] { 0xff000000, 0xffffffff }, 1);
+
+    private final static Palette EMPTY = new ArrayPalette("empty", "Empty", new int[0], 3);
+
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        PalettePack pack = PalettePack.open(write(NAMED, UNNAMED, EMPTY));
+        assertEquals(3, pack.size());
+        assertPalette(NAMED, pack.palette(0));
+        assertPalette(UNNAMED, pack.palette(1));
+        assertPalette(EMPTY, pack.palette(2));
+        assertEquals(1, pack.indexOf("unnamed"));
+        assertEquals(-1, pack.indexOf("missing"));
+    }
+
+
+    @Test
+    public void testSharedStrings() throws IOException
+    {
+        Palette copy = new ArrayPalette("named", "Named palette", new int[] { 0xff00ffff, 0xffff00ff, 0xffffff00 }, 2,
+                new String[] { "Blue ä🎨", "Red", null });
+
+        byte[] single = bytes(NAMED);
+        byte[] shared = bytes(NAMED, copy);
+        // the second palette only adds its entry, colors and color name offsets, all of its strings are already in the table
+        assertEquals(single.length + PalettePack.ENTRY_SIZE + 3 * 4 + 3 * 4, shared.length);
+
+        PalettePack pack = PalettePack.open(write(NAMED, copy));
+        assertPalette(NAMED, pack.palette(0));
+        assertPalette(copy, pack.palette(1));
+    }
+
+
+    @Test
+    public void testEmptyPack() throws IOException
+    {
+        File file = write();
+        assertEquals(PalettePack.HEADER_SIZE, file.length());
+        PalettePack pack = PalettePack.open(file);
+        assertEquals(0, pack.size());
+        assertEquals(-1, pack.indexOf("named"));
+    }
+
+
+    @Test
+    public void testOpenSharesPack() throws IOException
+    {
+        File file = write(NAMED);
+        assertSame(PalettePack.open(file), PalettePack.open(file));
+    }
+
+
+    @Test
+    public void testRewrittenPackReopened() throws IOException
+    {
+        File file = write(NAMED);
+        PalettePack pack = PalettePack.open(file);
+        long lastModified = file.lastModified();
+
+        PalettePackWriter.write(file, UNNAMED, EMPTY);
+        // make sure the change is visible even if the file system has a coarse time resolution
+        assertTrue(file.setLastModified(lastModified + 2000));
+
+        PalettePack rewritten = PalettePack.open(file);
+        assertNotSame(pack, rewritten);
+        assertEquals(2, rewritten.size());
+        assertPalette(UNNAMED, rewritten.palette(0));
+        assertSame(rewritten, PalettePack.open(file));
+    }
+
+
+    @Test
+    public void testBadMagic() throws IOException
+    {
+        byte[] bytes = bytes(NAMED);
+        bytes[0] = 'X';
+        assertInvalid(bytes);
+        assertInvalid(new byte[0]);
+        assertInvalid("GIMP Palette\n0 0 0\n".getBytes("UTF-8"));
+    }
+
+
+    @Test
+    public void testUnsupportedVersion() throws IOException
+    {
+        byte[] bytes = bytes(NAMED);
+        bytes[7] = 2;
+        assertInvalid(bytes);
+    }
+
+
+    @Test
+    public void testTruncated() throws IOException
+    {
+        byte[] bytes = bytes(NAMED, UNNAMED);
+        int strings = PalettePack.HEADER_SIZE + 2 * PalettePack.ENTRY_SIZE + 5 * 4 + 3 * 4;
+        // anything that's cut off before the string table is rejected when the pack is opened
+        for (int length = 0; length < strings; ++length)
+        {
+            assertInvalid(Arrays.copyOf(bytes, length));
+        }
+
+        // the string table is only checked when it's read
+        PalettePack pack = PalettePack.open(write(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertEquals(2, pack.size());
+        assertArrayEquals(colors(NAMED), colors(pack.palette(0)));
+        try
+        {
+            for (int i = 0; i < pack.size(); ++i)
+            {
+                Palette palette = pack.palette(i);
+                palette.id();
+                palette.name();
+                for (int j = 0; j < palette.numberOfColors(); ++j)
+                {
+                    palette.nameOfColorAt(j);
+                }
+            }
+            fail("IllegalStateException expected");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+
+
+    @Test
+    public void testCorruptDirectory() throws IOException
+    {
+        byte[] bytes = bytes(NAMED);
+        // let the colors of the first palette run into the string table
+        bytes[PalettePack.HEADER_SIZE + PalettePack.ENTRY_COUNT + 2] = 0x10;
+        PalettePack pack = PalettePack.open(write(bytes));
+        try
+        {
+            pack.palette(0);
+            fail("IllegalStateException expected");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+
+
+    private static void assertPalette(Palette expected, Palette actual)
+    {
+        assertEquals(expected.id(), actual.id());
+        assertEquals(expected.name(), actual.name());
+        assertEquals(expected.numberOfColumns(), actual.numberOfColumns());
+        assertArrayEquals(colors(expected), colors(actual));
+        for (int i = 0; i < expected.numberOfColors(); ++i)
+        {
+            assertEquals(expected.nameOfColorAt(i), actual.nameOfColorAt(i));
+        }
+        assertEquals(expected, actual);
+        assertEquals(expected.hashCode(), actual.hashCode());
+    }
+
+
+    private static void assertInvalid(byte[] bytes) throws IOException
+    {
+        File file = write(bytes);
+        try
+        {
+            PalettePack.open(file);
+            fail("IOException expected for " + bytes.length + " bytes");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+
+    private static byte[] bytes(Palette... palettes) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PalettePackWriter.write(out, palettes);
+        return out.toByteArray();
+    }
+
+
+    private static File write(Palette... palettes) throws IOException
+    {
+        File file = tempFile();
+        PalettePackWriter.write(file, palettes);
+        return file;
+    }
+
+
+    private static File write(byte[] bytes) throws IOException
+    {
+        File file = tempFile();
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(bytes);
+        }
+        finally
+        {
+            out.close();
+        }
+        return file;
+    }
+
+
+    private static File tempFile() throws IOException
+    {
+        File file = File.createTempFile("palettes", ".pack");
+        file.deleteOnExit();
+        return file;
+    }
+
+
+    private static int[] colors(Palette palette)
+    {
+        int[] result = new int[palette.numberOfColors()];
+        for (int i = 0; i < result.length; ++i)
+        {
+            result[i] = palette.colorAt(i);
+        }
+        return result;
+    }
+}
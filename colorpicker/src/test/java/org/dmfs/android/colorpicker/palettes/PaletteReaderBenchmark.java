@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 dmfs GmbH
+ *
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dmfs.android.colorpicker.palettes;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Measures the throughput of the palette readers on multi-megabyte files. The files are generated in memory, so only parsing is measured. The results are
+ * printed to stdout, timing is not asserted, because it depends on the machine. Reading large files is tested by the tests of the individual readers.
+ * <p>
+ * Benchmarks don't run with the other unit tests, run them with <code>gradlew test -Pbenchmarks</code>.
+ *
+ * @author Marten Gajda
+ */
+public class PaletteReaderBenchmark
+{
+    private final static Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The number of named colors per file. That results in files between 3 and 7 MB.
+     */
+    private final static int COUNT = 100000;
+
+    private final static int WARMUP_ROUNDS = 5;
+
+    private final static int ROUNDS = 10;
+
+
+    @Test
+    public void benchmarkJson() throws IOException
+    {
+        final byte[] file = json();
+        report("JSON", file, new Reader()
+        {
+            @Override
+            public Palette read() throws IOException
+            {
+                return JsonPaletteReader.read(new ByteArrayInputStream(file), "id", "name");
+            }
+        });
+    }
+
+
+    @Test
+    public void benchmarkGpl() throws IOException
+    {
+        final byte[] file = gpl();
+        report("GPL", file, new Reader()
+        {
+            @Override
+            public Palette read() throws IOException
+            {
+                return GplPaletteReader.read(new ByteArrayInputStream(file), "id", "name");
+            }
+        });
+    }
+
+
+    @Test
+    public void benchmarkAse() throws IOException
+    {
+        final byte[] file = ase();
+        report("ASE", file, new Reader()
+        {
+            @Override
+            public Palette read() throws IOException
+            {
+                return AsePaletteReader.read(new ByteArrayInputStream(file), "id", "name", 0);
+            }
+        });
+    }
+
+
+    private static void report(String format, byte[] file, Reader reader) throws IOException
+    {
+        assertTrue(file.length > 2 * 1024 * 1024);
+        for (int i = 0; i < WARMUP_ROUNDS; ++i)
+        {
+            verify(reader.read());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; ++i)
+        {
+            verify(reader.read());
+        }
+        long duration = (System.nanoTime() - start) / ROUNDS;
+        System.out.println(String.format(Locale.US, "%s: %.1f MB in %.1f ms, %.1f MB/s, %.1f Mcolors/s", format, file.length / 1e6, duration / 1e6,
+                file.length * 1e3 / duration, COUNT * 1e3 / duration));
+    }
+
+
+    private static void verify(Palette palette)
+    {
+        assertEquals(COUNT, palette.numberOfColors());
+        // spot check the last color, so the JIT can't drop the work
+        assertEquals(color(COUNT - 1), palette.colorAt(COUNT - 1));
+        assertEquals(name(COUNT - 1), palette.nameOfColorAt(COUNT - 1));
+    }
+
+
+    private static byte[] json()
+    {
+        StringBuilder result = new StringBuilder(COUNT * 48);
+        result.append("{\n  \"id\": \"benchmark\",\n  \"name\": \"Benchmark\",\n  \"colors\": [\n");
+        for (int i = 0; i < COUNT; ++i)
+        {
+            result.append(i == 0 ? "    " : ",\n    ")
+                    .append("{ \"color\": \"#")
+                    .append(String.format(Locale.US, "%06x", color(i) & 0xffffff))
+                    .append("\", \"name\": \"")
+                    .append(name(i))
+                    .append("\" }");
+        }
+        result.append("\n  ]\n}\n");
+        return result.toString().getBytes(UTF8);
+    }
+
+
+    private static byte[] gpl()
+    {
+        StringBuilder result = new StringBuilder(COUNT * 40);
+        result.append("GIMP Palette\nName: Benchmark\nColumns: 16\n#\n");
+        for (int i = 0; i < COUNT; ++i)
+        {
+            int color = color(i);
+            result.append(String.format(Locale.US, "%3d %3d %3d\t", (color >> 16) & 0xff, (color >> 8) & 0xff, color & 0xff)).append(name(i)).append('\n');
+        }
+        return result.toString().getBytes(UTF8);
+    }
+
+
+    private static byte[] ase() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(COUNT * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x41534546);
+        out.writeInt(0x00010000);
+        out.writeInt(COUNT);
+        for (int i = 0; i < COUNT; ++i)
+        {
+            String name = name(i);
+            int color = color(i);
+            out.writeShort(0x0001);
+            out.writeInt(2 + (name.length() + 1) * 2 + 4 + 12 + 2);
+            out.writeShort(name.length() + 1);
+            out.writeChars(name);
+            out.writeChar(0);
+            out.writeInt(0x52474220);
+            out.writeFloat(((color >> 16) & 0xff) / 255f);
+            out.writeFloat(((color >> 8) & 0xff) / 255f);
+            out.writeFloat((color & 0xff) / 255f);
+            // color type "global"
+            out.writeShort(0);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    private static int color(int index)
+    {
+        // spread the colors over the whole RGB space
+        return 0xff000000 | (index * 0x9e3779b1) & 0xffffff;
+    }
+
+
+    private static String name(int index)
+    {
+        return "Color number " + index;
+    }
+
+
+    private interface Reader
+    {
+        Palette read() throws IOException;
+    }
+}
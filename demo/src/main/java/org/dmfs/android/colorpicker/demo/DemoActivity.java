@@ -28,10 +28,11 @@ import org.dmfs.android.colorpicker.palettes.ArrayPalette;
 import org.dmfs.android.colorpicker.palettes.ColorFactory;
 import org.dmfs.android.colorpicker.palettes.ColorShadeFactory;
 import org.dmfs.android.colorpicker.palettes.CombinedColorFactory;
-import org.dmfs.android.colorpicker.palettes.FactoryPalette;
 import org.dmfs.android.colorpicker.palettes.Palette;
+import org.dmfs.android.colorpicker.palettes.PaletteRegistry;
 import org.dmfs.android.colorpicker.palettes.RainbowColorFactory;
 import org.dmfs.android.colorpicker.palettes.RandomPalette;
+import org.dmfs.android.colorpicker.palettes.ResourcePalette;
 import org.dmfs.android.retentionmagic.annotations.Retain;
 
 import java.util.ArrayList;
@@ -57,6 +58,9 @@ public class DemoActivity extends AppCompatActivity implements ColorDialogResult
     @Retain(permanent = true, classNS = "DemoActivity")
     private String mSelectedPalette = null;
 
+    @Retain(permanent = true, classNS = "DemoActivity")
+    private int mSelectedColor = 0;
+
 
     @Override
     protected void onCreate(Bundle savedInstanceState)
@@ -80,38 +84,39 @@ public class DemoActivity extends AppCompatActivity implements ColorDialogResult
         palettes.add(new ArrayPalette("material_secondary", "Dark Material Colors", MATERIAL_COLORS_SECONDARY, 4));
 
         // add a palette from the resources
-        palettes.add(ArrayPalette.fromResources(this, "base", R.string.base_palette_name, R.array.base_palette_colors, R.array.base_palette_color_names));
+        palettes.add(new ResourcePalette(this, "base", R.string.base_palette_name, R.array.base_palette_colors, R.array.base_palette_color_names));
 
         palettes.add(new ArrayPalette("base2", "Base 2", COLORS));
 
         // Android Material color schema
+        // generated palettes are taken from the registry, so they are built only once
         // Add a palette with rainbow colors
-        palettes.add(new FactoryPalette("rainbow", "Rainbow", ColorFactory.RAINBOW, 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("rainbow", "Rainbow", ColorFactory.RAINBOW, 16));
 
         // Add a palette with many darker rainbow colors
-        palettes.add(new FactoryPalette("rainbow2", "Dirty Rainbow", new RainbowColorFactory(0.5f, 0.5f), 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("rainbow2", "Dirty Rainbow", new RainbowColorFactory(0.5f, 0.5f), 16));
 
         // Add a palette with pastel colors
-        palettes.add(new FactoryPalette("pastel", "Pastel", ColorFactory.PASTEL, 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("pastel", "Pastel", ColorFactory.PASTEL, 16));
 
         // Add a palette with red+orange colors
-        palettes.add(new FactoryPalette("red/orange", "Red/Orange", new CombinedColorFactory(ColorFactory.RED, ColorFactory.ORANGE), 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("red/orange", "Red/Orange", new CombinedColorFactory(ColorFactory.RED, ColorFactory.ORANGE), 16));
 
         // Add a palette with yellow+green colors
-        palettes.add(new FactoryPalette("yellow/green", "Yellow/Green", new CombinedColorFactory(ColorFactory.YELLOW, ColorFactory.GREEN), 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("yellow/green", "Yellow/Green", new CombinedColorFactory(ColorFactory.YELLOW, ColorFactory.GREEN), 16));
 
         // Add a palette with cyan+blue colors
-        palettes.add(new FactoryPalette("cyan/blue", "Cyan/Blue", new CombinedColorFactory(ColorFactory.CYAN, ColorFactory.BLUE), 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("cyan/blue", "Cyan/Blue", new CombinedColorFactory(ColorFactory.CYAN, ColorFactory.BLUE), 16));
 
         // Add a palette with purple+pink colors
-        palettes.add(new FactoryPalette("purble/pink", "Purple/Pink", new CombinedColorFactory(ColorFactory.PURPLE, ColorFactory.PINK), 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("purble/pink", "Purple/Pink", new CombinedColorFactory(ColorFactory.PURPLE, ColorFactory.PINK), 16));
 
         // Add a palette with red colors
-        palettes.add(new FactoryPalette("red", "Red", ColorFactory.RED, 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("red", "Red", ColorFactory.RED, 16));
         // Add a palette with green colors
-        palettes.add(new FactoryPalette("green", "Green", ColorFactory.GREEN, 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("green", "Green", ColorFactory.GREEN, 16));
         // Add a palette with blue colors
-        palettes.add(new FactoryPalette("blue", "Blue", ColorFactory.BLUE, 16));
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("blue", "Blue", ColorFactory.BLUE, 16));
 
         // Add a palette with few random colors
         palettes.add(new RandomPalette("random1", "Random 1", 1));
@@ -129,11 +134,11 @@ public class DemoActivity extends AppCompatActivity implements ColorDialogResult
         palettes.add(new RandomPalette("random81", "Random 81", 81));
 
         // Add a palette with secondary colors
-        palettes.add(new FactoryPalette("secondary1", "Secondary 1", new CombinedColorFactory(new ColorShadeFactory(18),
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("secondary1", "Secondary 1", new CombinedColorFactory(new ColorShadeFactory(18),
                 new ColorShadeFactory(53), new ColorShadeFactory(80), new ColorShadeFactory(140)), 16, 4));
 
         // Add another palette with secondary colors
-        palettes.add(new FactoryPalette("secondary2", "Secondary 2", new CombinedColorFactory(new ColorShadeFactory(210),
+        palettes.add(PaletteRegistry.DEFAULT.factoryPalette("secondary2", "Secondary 2", new CombinedColorFactory(new ColorShadeFactory(210),
                 new ColorShadeFactory(265), new ColorShadeFactory(300), new ColorShadeFactory(340)), 16, 4));
 
         // set the palettes
@@ -142,6 +147,15 @@ public class DemoActivity extends AppCompatActivity implements ColorDialogResult
         // set the initial palette
         d.selectPaletteId(mSelectedPalette);
 
+        // highlight the last color, this switches to the first palette that contains it
+        if (mSelectedColor != 0)
+        {
+            d.selectColor(mSelectedColor);
+        }
+
+        // allow to search colors by name
+        d.setSearchEnabled(true);
+
         // show the fragment
         d.show(getSupportFragmentManager(), "");
     }
@@ -153,6 +167,7 @@ public class DemoActivity extends AppCompatActivity implements ColorDialogResult
         mColorBox.setBackgroundColor(color);
         mTextView.setText(colorName == null ? " from \"" + paletteName + "\"" : "\"" + colorName + "\" from \"" + paletteName + "\"");
         mSelectedPalette = paletteId;
+        mSelectedColor = color;
     }
 
 